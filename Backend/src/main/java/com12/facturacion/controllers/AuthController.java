@@ -1,34 +1,44 @@
 package com12.facturacion.controllers;
 
 import com12.facturacion.infra.security.DataJWTToken;
+import com12.facturacion.infra.security.LoginMetrics;
+import com12.facturacion.infra.security.LoginService;
 import com12.facturacion.infra.security.TokenService;
 import com12.facturacion.models.user.AuthUserData;
-import com12.facturacion.models.user.User;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.*;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final TokenService tokenService;
 
     @PostMapping("/login")
-    public ResponseEntity<DataJWTToken> autenticacion(@RequestBody @Valid AuthUserData dataAutenticationUser) {
-        Authentication authToken = new UsernamePasswordAuthenticationToken(
-                dataAutenticationUser.username(), dataAutenticationUser.password()
-        );
+    public CompletableFuture<ResponseEntity<DataJWTToken>> autenticacion(@RequestBody @Valid AuthUserData dataAutenticationUser,
+                                                                         HttpServletRequest request) {
+        // Tomcat ya resolvió la IP del cliente desde los proxies de confianza (server.tomcat.remoteip)
+        return loginService.login(dataAutenticationUser, request.getRemoteAddr()).thenApply(ResponseEntity::ok);
+    }
 
-        Authentication usuarioAutenticado = authenticationManager.authenticate(authToken);
-        User user = (User) usuarioAutenticado.getPrincipal();
-        String token = tokenService.generateToken(user);
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        tokenService.revocar(authHeader.replace("Bearer ", ""));
+        return ResponseEntity.noContent().build();
+    }
 
-        return ResponseEntity.ok(new DataJWTToken(token));
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<LoginMetrics> metrics() {
+        return ResponseEntity.ok(loginService.metrics());
     }
 }
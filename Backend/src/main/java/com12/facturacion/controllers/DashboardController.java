@@ -1,29 +1,92 @@
 package com12.facturacion.controllers;
 
 import com12.facturacion.models.dashboard.*;
+import com12.facturacion.models.product.ProductCategory;
+import com12.facturacion.models.rollup.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/dashboard")
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final DashboardStatsCache statsCache;
+    private final BestSellerTracker bestSellerTracker;
+    private final SalesSeriesService seriesService;
+    private final SalesRollupService rollupService;
 
     @Autowired
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService, DashboardStatsCache statsCache,
+                               BestSellerTracker bestSellerTracker, SalesSeriesService seriesService,
+                               SalesRollupService rollupService) {
         this.dashboardService = dashboardService;
+        this.statsCache = statsCache;
+        this.bestSellerTracker = bestSellerTracker;
+        this.seriesService = seriesService;
+        this.rollupService = rollupService;
     }
 
     @GetMapping("/stats")
     @PreAuthorize("hasAnyRole('ADMINISTRADOR')")
     public ResponseEntity<DashboardStats> obtenerEstadisticas() {
-        return ResponseEntity.ok(dashboardService.getStatistics());
+        return ResponseEntity.ok(statsCache.get());
+    }
+
+    @GetMapping("/stats/cache")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<DashboardCacheMetrics> obtenerMetricasCache() {
+        return ResponseEntity.ok(statsCache.metrics());
+    }
+
+    @GetMapping("/best-sellers")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<List<BestSellingProduct>> obtenerMasVendidos(
+            @RequestParam(defaultValue = "TOTAL") BestSellerWindow ventana) {
+        return ResponseEntity.ok(bestSellerTracker.top(ventana));
+    }
+
+    @GetMapping("/series")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<List<SeriesPoint>> obtenerSerie(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(required = false) ProductCategory categoria,
+            @RequestParam(required = false) Long usuarioId) {
+        return ResponseEntity.ok(seriesService.getSeries(new SeriesRequest(from, to, bucket, categoria, usuarioId)));
+    }
+
+    // @PreAuthorize no aplica a los mensajes STOMP: el rol se valida aquí y la respuesta va solo a quien la pidió
+    @MessageMapping("/dashboard/series")
+    @SendToUser(destinations = "/queue/dashboard/series", broadcast = false)
+    public List<SeriesPoint> publicarSerie(SeriesRequest request, Principal principal) {
+        if (!(principal instanceof Authentication auth) || auth.getAuthorities().stream()
+                .noneMatch(authority -> "ROLE_ADMINISTRADOR".equals(authority.getAuthority()))) {
+            throw new AccessDeniedException("No tienes permisos para realizar esta acción");
+        }
+        return seriesService.getSeries(request);
+    }
+
+    @PostMapping("/rollups/reconstruir")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<Integer> reconstruirRollups() {
+        int filas = rollupService.reconstruir();
+        bestSellerTracker.rebuild();
+        return ResponseEntity.ok(filas);
     }
 
     @MessageMapping("/notificaciones")
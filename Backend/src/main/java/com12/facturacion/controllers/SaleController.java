@@ -1,12 +1,17 @@
 package com12.facturacion.controllers;
 
+import com12.facturacion.infra.service.IdempotencyService;
+import com12.facturacion.models.archive.SaleArchiveService;
 import com12.facturacion.models.sale.*;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -17,16 +22,25 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SaleController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final SaleService saleService;
+    private final IdempotencyService idempotencyService;
+    private final SaleExportService saleExportService;
+    private final SaleArchiveService saleArchiveService;
 
     @PostMapping
-    public ResponseEntity<SaleDTO> crearVenta(@RequestBody @Valid SaleRequest request) {
-        return ResponseEntity.ok(saleService.crearVenta(request));
+    public ResponseEntity<SaleDTO> crearVenta(@RequestBody @Valid SaleRequest request,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "POST /ventas", request,
+                () -> saleService.crearVenta(request)));
     }
 
     @PutMapping("/{id}/completar")
-    public ResponseEntity<SaleDTO> completarVenta(@PathVariable Long id) {
-        return ResponseEntity.ok(saleService.completarVenta(id));
+    public ResponseEntity<SaleDTO> completarVenta(@PathVariable Long id,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "PUT /ventas/" + id + "/completar", null,
+                () -> saleService.completarVenta(id)));
     }
 
     @GetMapping("/usuario")
@@ -44,21 +58,77 @@ public class SaleController {
         return ResponseEntity.ok(saleService.obtenerVentasPorFecha(inicio, fin));
     }
 
+    @GetMapping("/historial")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<SalePage> obtenerHistorial(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(saleService.obtenerHistorial(inicio, fin, limit, cursor));
+    }
+
+    @GetMapping("/usuario/historial")
+    public ResponseEntity<SalePage> obtenerHistorialUsuario(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(saleService.obtenerHistorialUsuario(inicio, fin, limit, cursor));
+    }
+
+    @GetMapping("/archivo")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<List<SaleDTO>> obtenerVentasArchivadas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+        return ResponseEntity.ok(saleArchiveService.buscar(inicio, fin));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<StreamingResponseBody> exportarVentas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(defaultValue = "csv") String format) {
+        ExportFormat formato = ExportFormat.from(format);
+        StreamingResponseBody cuerpo = salida -> saleExportService.exportar(inicio, fin, formato, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"ventas-" + inicio.toLocalDate() + "-" + fin.toLocalDate() + "." + formato.extension() + "\"")
+                .body(cuerpo);
+    }
+
     @PutMapping("/{id}/agregarProductos")
     public ResponseEntity<SaleDTO> agregarProductos(@PathVariable Long id,
-                                                    @RequestBody @Valid AgregarProductoDTO request) {
-        return ResponseEntity.ok(saleService.agregarProductos(id, request));
+                                                    @RequestBody @Valid AgregarProductoDTO request,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "PUT /ventas/" + id + "/agregarProductos", request,
+                () -> saleService.agregarProductos(id, request)));
+    }
+
+    @PatchMapping("/{id}/lineas")
+    public ResponseEntity<SaleDTO> actualizarLineas(@PathVariable Long id,
+                                                    @RequestBody @Valid ActualizarLineasRequest request,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "PATCH /ventas/" + id + "/lineas", request,
+                () -> saleService.actualizarLineas(id, request)));
     }
 
     @DeleteMapping("/{saleId}/producto/{productoId}")
     public ResponseEntity<SaleDTO> eliminarProductoDeVenta(@PathVariable Long saleId,
-                                                           @PathVariable Long productoId) {
-        return ResponseEntity.ok(saleService.eliminarProductoDeVenta(saleId, productoId));
+                                                           @PathVariable Long productoId,
+                                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "DELETE /ventas/" + saleId + "/producto/" + productoId, null,
+                () -> saleService.eliminarProductoDeVenta(saleId, productoId)));
     }
 
     @PutMapping("/{id}/actualizar")
     public ResponseEntity<SaleDTO> actualizarDescuentoYDetalle(@PathVariable Long id,
-                                                               @RequestBody @Valid SaleUpdateRequest request) {
-        return ResponseEntity.ok(saleService.actualizarDescuentoYDetalle(id, request.discount(), request.saleDetail()));
+                                                               @RequestBody @Valid SaleUpdateRequest request,
+                                                               @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyService.ejecutar(idempotencyKey, "PUT /ventas/" + id + "/actualizar", request,
+                () -> saleService.actualizarDescuentoYDetalle(id, request.discount(), request.saleDetail())));
     }
 }
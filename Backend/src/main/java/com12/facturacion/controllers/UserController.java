@@ -43,6 +43,13 @@ public class UserController {
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    @PostMapping("/{userId}/revocar-sesiones")
+    public ResponseEntity<Void> revocarSesiones(@PathVariable Long userId) {
+        userService.revocarSesiones(userId);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @PreAuthorize("hasRole('ADMINISTRADOR')")
     @DeleteMapping("/{userId}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long userId) {
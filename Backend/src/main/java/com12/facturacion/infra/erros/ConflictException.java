@@ -0,0 +1,7 @@
+package com12.facturacion.infra.erros;
+
+public class ConflictException extends RuntimeException{
+    public ConflictException(String mensaje) {
+        super(mensaje);
+    }
+}
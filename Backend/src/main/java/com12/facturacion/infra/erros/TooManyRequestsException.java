@@ -0,0 +1,14 @@
+package com12.facturacion.infra.erros;
+
+public class TooManyRequestsException extends RuntimeException{
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String mensaje, long retryAfterSeconds) {
+        super(mensaje);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
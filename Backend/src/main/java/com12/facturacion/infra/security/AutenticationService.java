@@ -7,14 +7,46 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 @RequiredArgsConstructor
 public class AutenticationService implements UserDetailsService {
+
+    // Cubre la ráfaga de inicios de sesión de un cambio de turno; UserService invalida al modificar un usuario
+    static final Duration TTL_USUARIOS = Duration.ofSeconds(30);
+    static final int MAX_USUARIOS = 1_000;
+
     private final UserRepository userRepository;
+    private final Map<String, CachedUser> usuarios = new ConcurrentHashMap<>();
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username);
+        long ahora = System.nanoTime();
+        CachedUser cached = usuarios.get(username);
+        if (cached != null && cached.expiraEn - ahora > 0) {
+            return cached.user;
+        }
+
+        UserDetails user = userRepository.findByUsername(username);
+        if (user == null) {
+            throw new UsernameNotFoundException("Usuario no encontrado");
+        }
+        if (usuarios.size() >= MAX_USUARIOS) {
+            usuarios.values().removeIf(entrada -> entrada.expiraEn - ahora <= 0);
+        }
+        if (usuarios.size() < MAX_USUARIOS) {
+            usuarios.put(username, new CachedUser(user, ahora + TTL_USUARIOS.toNanos()));
+        }
+        return user;
     }
 
+    public void evict(String username) {
+        usuarios.remove(username);
+    }
+
+    private record CachedUser(UserDetails user, long expiraEn) {
+    }
 }
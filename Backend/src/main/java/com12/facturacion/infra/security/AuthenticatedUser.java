@@ -0,0 +1,23 @@
+package com12.facturacion.infra.security;
+
+import java.security.Principal;
+
+/**
+ * Principal armado a partir de los claims del JWT verificado. Evita consultar
+ * {@code users} en cada petición para saber quién es el usuario autenticado.
+ */
+public record AuthenticatedUser(
+        Long id,
+        String username,
+        String role
+) implements Principal {
+
+    public static AuthenticatedUser from(TokenClaims claims) {
+        return new AuthenticatedUser(claims.id(), claims.username(), claims.role());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -29,12 +29,11 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 try {
                     String token = authHeader.substring(7);
-                    String username = tokenService.getNameToken(token);
-                    String role = tokenService.getRoleFromToken(token);
+                    TokenClaims claims = tokenService.verificar(token);
 
-                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + role);
+                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + claims.role());
                     UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(username, null, Collections.singletonList(authority));
+                            new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(claims), null, Collections.singletonList(authority));
 
                     accessor.setUser(authentication);
                     SecurityContextHolder.getContext().setAuthentication(authentication); // ✅ este era el detalle
@@ -0,0 +1,13 @@
+package com12.facturacion.infra.security;
+
+public record LoginMetrics(
+        long exitosos,
+        long fallidos,
+        long rechazadosPorCarga,
+        long rechazadosPorIntentos,
+        double latenciaPromedioMs,
+        double latenciaMaximaMs,
+        int enCola,
+        int hilosActivos
+) {
+}
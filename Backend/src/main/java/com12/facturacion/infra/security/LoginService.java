@@ -0,0 +1,168 @@
+package com12.facturacion.infra.security;
+
+import com12.facturacion.infra.erros.TooManyRequestsException;
+import com12.facturacion.models.user.AuthUserData;
+import com12.facturacion.models.user.User;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inicio de sesión fuera del pool de Tomcat. BCrypt es deliberadamente lento,
+ * así que se ejecuta en un pool propio de tamaño fijo con una cola acotada: si
+ * la cola se llena la petición se rechaza con 429 en lugar de acumular hilos
+ * de petición que también necesita la toma de pedidos. Varios fallos seguidos
+ * de un usuario desde la misma IP se rechazan sin calcular el hash hasta que
+ * pasa la ventana; se cuenta por usuario e IP para que nadie pueda bloquear la
+ * cuenta de otro desde su propia máquina.
+ */
+@Service
+public class LoginService {
+
+    static final int MAX_FALLOS = 5;
+    static final Duration VENTANA_FALLOS = Duration.ofMinutes(5);
+    private static final long REINTENTO_POR_CARGA_SEGUNDOS = 2;
+
+    private final AuthenticationManager authenticationManager;
+    private final TokenService tokenService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Fallos> fallos = new ConcurrentHashMap<>();
+
+    private final LongAdder exitosos = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final LongAdder rechazadosPorCarga = new LongAdder();
+    private final LongAdder rechazadosPorIntentos = new LongAdder();
+    private final LongAdder latenciaTotalNanos = new LongAdder();
+    private final LongAccumulator latenciaMaximaNanos = new LongAccumulator(Long::max, 0);
+
+    @Autowired
+    public LoginService(AuthenticationManager authenticationManager, TokenService tokenService,
+                        @Value("${login.executor.threads:2}") int hilos,
+                        @Value("${login.executor.queue:20}") int cola) {
+        this.authenticationManager = authenticationManager;
+        this.tokenService = tokenService;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<DataJWTToken> login(AuthUserData datos, String ip) {
+        String clave = datos.username() == null ? null : datos.username() + "|" + ip;
+        long retryAfter = segundosBloqueado(clave);
+        if (retryAfter > 0) {
+            rechazadosPorIntentos.increment();
+            throw new TooManyRequestsException("Demasiados intentos fallidos, intente más tarde", retryAfter);
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> autenticar(datos, clave, inicio), executor);
+        } catch (RejectedExecutionException e) {
+            rechazadosPorCarga.increment();
+            throw new TooManyRequestsException("Hay demasiados inicios de sesión en curso, intente de nuevo",
+                    REINTENTO_POR_CARGA_SEGUNDOS);
+        }
+    }
+
+    public LoginMetrics metrics() {
+        long total = exitosos.sum() + fallidos.sum();
+        double promedioMs = total == 0 ? 0 : latenciaTotalNanos.sum() / (double) total / 1_000_000;
+        return new LoginMetrics(
+                exitosos.sum(),
+                fallidos.sum(),
+                rechazadosPorCarga.sum(),
+                rechazadosPorIntentos.sum(),
+                promedioMs,
+                latenciaMaximaNanos.get() / 1_000_000.0,
+                executor.getQueue().size(),
+                executor.getActiveCount());
+    }
+
+    private DataJWTToken autenticar(AuthUserData datos, String clave, long inicio) {
+        try {
+            Authentication autenticado = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(datos.username(), datos.password()));
+            if (clave != null) {
+                fallos.remove(clave);
+            }
+            exitosos.increment();
+            return new DataJWTToken(tokenService.generateToken((User) autenticado.getPrincipal()));
+        } catch (AuthenticationException e) {
+            registrarFallo(clave);
+            fallidos.increment();
+            throw e;
+        } finally {
+            long duracion = System.nanoTime() - inicio;
+            latenciaTotalNanos.add(duracion);
+            latenciaMaximaNanos.accumulate(duracion);
+        }
+    }
+
+    private long segundosBloqueado(String clave) {
+        if (clave == null) {
+            return 0;
+        }
+        Fallos registro = fallos.get(clave);
+        if (registro == null) {
+            return 0;
+        }
+        long restante = registro.inicioVentana + VENTANA_FALLOS.toNanos() - System.nanoTime();
+        if (restante <= 0) {
+            fallos.remove(clave, registro);
+            return 0;
+        }
+        return registro.cantidad >= MAX_FALLOS ? TimeUnit.NANOSECONDS.toSeconds(restante) + 1 : 0;
+    }
+
+    private void registrarFallo(String clave) {
+        if (clave == null) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        fallos.compute(clave, (k, actual) -> {
+            if (actual == null || ahora - actual.inicioVentana >= VENTANA_FALLOS.toNanos()) {
+                return new Fallos(ahora, 1);
+            }
+            return new Fallos(actual.inicioVentana, actual.cantidad + 1);
+        });
+    }
+
+    // Limpia ventanas vencidas de usuarios que no volvieron a intentar
+    @Scheduled(fixedDelay = 600000)
+    public void purgarFallosVencidos() {
+        long ahora = System.nanoTime();
+        fallos.values().removeIf(registro -> ahora - registro.inicioVentana >= VENTANA_FALLOS.toNanos());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Fallos(long inicioVentana, int cantidad) {
+    }
+}
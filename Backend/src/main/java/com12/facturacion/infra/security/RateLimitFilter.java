@@ -0,0 +1,248 @@
+package com12.facturacion.infra.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las peticiones por usuario e IP con un token bucket por regla de
+ * {@link RateLimitProperties}, para que un cliente que repite peticiones en
+ * bucle no agote el pool de conexiones de los demás. Va justo después de
+ * {@link SecurityFilter} para conocer al usuario; las peticiones anónimas se
+ * agrupan por IP. En las reglas {@code porUsuario} la petición debe pasar dos
+ * buckets: el de la IP y el del {@code username} enviado desde esa IP. La IP es la del cliente ya resuelta de los encabezados
+ * del proxy ({@code server.forward-headers-strategy}). Los preflight CORS no
+ * se limitan. Los buckets sin uso se descartan periódicamente.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final int MAX_BUCKETS = 50_000;
+    // Un login válido ocupa unas decenas de bytes; más allá no se busca el username
+    static final int MAX_CUERPO_USUARIO = 4096;
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int indice = properties.enabled() && !HttpMethod.OPTIONS.matches(request.getMethod())
+                ? reglaPara(request) : -1;
+        if (indice < 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitProperties.Regla regla = properties.reglas().get(indice);
+        long ahora = System.nanoTime();
+        String ip = request.getRemoteAddr();
+        String usuario;
+        if (regla.porUsuario()) {
+            // Primero la IP: quien rota usernames no obtiene un bucket nuevo en cada intento
+            long espera = consumir(indice + "|ip|" + ip, regla.capacidadPorIp(), regla, ahora);
+            if (espera > 0) {
+                rechazar(response, TimeUnit.NANOSECONDS.toSeconds(espera) + 1);
+                return;
+            }
+            long largo = request.getContentLengthLong();
+            if (largo >= 0 && largo <= MAX_CUERPO_USUARIO) {
+                CuerpoLeido leido = new CuerpoLeido(request, (int) largo);
+                request = leido;
+                usuario = usernameEnviado(leido.cuerpo);
+            } else {
+                // Sin Content-Length o más grande que un login: no se lee y cuenta como sin username
+                usuario = "-";
+            }
+        } else {
+            usuario = usuario();
+        }
+
+        long espera = consumir(indice + "|" + usuario + "|" + ip, regla.capacidad(), regla, ahora);
+        if (espera > 0) {
+            rechazar(response, TimeUnit.NANOSECONDS.toSeconds(espera) + 1);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private long consumir(String clave, int capacidad, RateLimitProperties.Regla regla, long ahora) {
+        TokenBucket bucket = buckets.get(clave);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                liberarEspacio(ahora);
+            }
+            bucket = buckets.computeIfAbsent(clave,
+                    k -> new TokenBucket(capacidad, regla.periodo().toNanos(), ahora));
+        }
+        return bucket.consumir(ahora);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void descartarInactivos() {
+        long limite = System.nanoTime() - properties.inactividad().toNanos();
+        buckets.values().removeIf(bucket -> bucket.ultimoAcceso() - limite < 0);
+    }
+
+    private int reglaPara(HttpServletRequest request) {
+        // Decodificada y sin ;parametros, como la ve el enrutado de MVC: /mes%61s debe caer en /mesas/**
+        String ruta = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        List<RateLimitProperties.Regla> reglas = properties.reglas();
+        for (int i = 0; i < reglas.size(); i++) {
+            RateLimitProperties.Regla regla = reglas.get(i);
+            if ((regla.metodo() == null || regla.metodo().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(regla.patron(), ruta)
+                    && !coincideAlguno(regla.excluir(), ruta)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean coincideAlguno(List<String> patrones, String ruta) {
+        for (String patron : patrones) {
+            if (pathMatcher.match(patron, ruta)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Cuerpo ilegible o sin username: se agrupa solo por IP
+    private String usernameEnviado(byte[] cuerpo) {
+        if (cuerpo.length == 0) {
+            return "-";
+        }
+        try {
+            JsonNode username = objectMapper.readTree(cuerpo).path("username");
+            return username.isTextual() ? "u:" + username.asText().trim().toLowerCase(Locale.ROOT) : "-";
+        } catch (IOException e) {
+            return "-";
+        }
+    }
+
+    private static String usuario() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "-";
+    }
+
+    // Quitar un bucket activo solo lo devuelve lleno: se prefiere a crecer sin límite
+    private void liberarEspacio(long ahora) {
+        long limite = ahora - properties.inactividad().toNanos();
+        buckets.values().removeIf(bucket -> bucket.ultimoAcceso() - limite < 0);
+        Iterator<String> it = buckets.keySet().iterator();
+        int aQuitar = buckets.size() - MAX_BUCKETS * 9 / 10;
+        while (aQuitar-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        error.put("error", "Too many requests");
+        error.put("message", "Demasiadas solicitudes, intente de nuevo en unos segundos");
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /**
+     * Cuerpo ya leído completo en memoria, que se vuelve a entregar al
+     * controlador. Solo se usa con cuerpos de hasta {@link #MAX_CUERPO_USUARIO}.
+     */
+    private static final class CuerpoLeido extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        CuerpoLeido(HttpServletRequest request, int largo) throws IOException {
+            super(request);
+            this.cuerpo = request.getInputStream().readNBytes(largo);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream datos = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return datos.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return datos.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return datos.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // No hay nada que esperar: se avisa de inmediato que todo está disponible
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com12.facturacion.infra.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reglas de {@link RateLimitFilter}. Se aplica la primera regla cuyo método y
+ * patrón coinciden con la petición; sin coincidencia la petición no se limita.
+ *
+ * @param inactividad tiempo sin peticiones tras el cual se descarta un bucket
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(
+        boolean enabled,
+        Duration inactividad,
+        List<Regla> reglas
+) {
+
+    public RateLimitProperties {
+        if (inactividad == null) {
+            inactividad = Duration.ofMinutes(10);
+        }
+        if (reglas == null) {
+            reglas = List.of();
+        }
+    }
+
+    /**
+     * Permite ráfagas de hasta {@code capacidad} peticiones y repone
+     * {@code capacidad} cada {@code periodo}.
+     *
+     * @param metodo     método HTTP, o nulo para cualquiera
+     * @param patron     patrón estilo Ant, p. ej. {@code /mesas/**}
+     * @param excluir    patrones a los que no se aplica esta regla
+     * @param porUsuario agrupa por el {@code username} enviado en el cuerpo JSON
+     *                   además de la IP, para peticiones anónimas como el login
+     * @param capacidadPorIp con {@code porUsuario}, límite de la IP sumando todos
+     *                   los usernames; por defecto igual a {@code capacidad}
+     */
+    public record Regla(
+            String metodo,
+            String patron,
+            List<String> excluir,
+            boolean porUsuario,
+            int capacidad,
+            Integer capacidadPorIp,
+            Duration periodo
+    ) {
+
+        public Regla {
+            if (excluir == null) {
+                excluir = List.of();
+            }
+            if (capacidadPorIp == null) {
+                capacidadPorIp = capacidad;
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com12.facturacion.infra.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,13 +21,16 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     private final SecurityFilter securityFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Autowired
-    public SecurityConfig(SecurityFilter securityFilter) {
+    public SecurityConfig(SecurityFilter securityFilter, RateLimitFilter rateLimitFilter) {
         this.securityFilter = securityFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -41,6 +45,7 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/ping").permitAll()
                                 .requestMatchers("/ws/**").permitAll()
+                                .requestMatchers(HttpMethod.GET, "/auth/metrics").hasRole("ADMINISTRADOR")
                                 .requestMatchers(HttpMethod.POST,"/user/**" ).hasRole("ADMINISTRADOR")
                                 .requestMatchers(HttpMethod.GET,"/user/**").hasRole("ADMINISTRADOR")
                                 .requestMatchers(HttpMethod.PUT,"/user/**").hasRole("ADMINISTRADOR")
@@ -48,6 +53,7 @@ public class SecurityConfig {
                                 .anyRequest().authenticated()
                 )
                 .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, SecurityFilter.class)
                 .build();
     }
 
@@ -37,17 +37,13 @@ public class SecurityFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.replace("Bearer ", "");
             try {
-                String userName = tokenService.getNameToken(token);
-                String role = tokenService.getRoleFromToken(token);
+                TokenClaims claims = tokenService.verificar(token);
+                List<SimpleGrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + claims.role()));
 
-                if (userName != null && role != null) {
-                    List<SimpleGrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(claims), null, authorities);
 
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(userName, null, authorities);
-
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                }
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             } catch (RuntimeException ex) {
                 logger.error("Error processing JWT token", ex);
             }
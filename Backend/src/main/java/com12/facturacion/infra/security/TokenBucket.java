@@ -0,0 +1,50 @@
+package com12.facturacion.infra.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket sin locks: el estado es inmutable y se reemplaza con CAS, así
+ * que peticiones simultáneas del mismo cliente nunca se bloquean entre sí.
+ */
+class TokenBucket {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private final AtomicReference<Estado> estado;
+    // Incluye peticiones rechazadas: un cliente que insiste no debe parecer inactivo
+    private volatile long ultimoAcceso;
+
+    TokenBucket(int capacidad, long periodoNanos, long ahoraNanos) {
+        this.capacidad = capacidad;
+        this.tokensPorNano = capacidad / (double) periodoNanos;
+        this.estado = new AtomicReference<>(new Estado(capacidad, ahoraNanos));
+        this.ultimoAcceso = ahoraNanos;
+    }
+
+    /**
+     * Consume un token si hay.
+     *
+     * @return 0 si se consumió, o los nanosegundos hasta que haya uno disponible
+     */
+    long consumir(long ahoraNanos) {
+        ultimoAcceso = ahoraNanos;
+        while (true) {
+            Estado actual = estado.get();
+            double tokens = Math.min(capacidad,
+                    actual.tokens + Math.max(0, ahoraNanos - actual.actualizado) * tokensPorNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPorNano);
+            }
+            if (estado.compareAndSet(actual, new Estado(tokens - 1, Math.max(ahoraNanos, actual.actualizado)))) {
+                return 0;
+            }
+        }
+    }
+
+    long ultimoAcceso() {
+        return ultimoAcceso;
+    }
+
+    private record Estado(double tokens, long actualizado) {
+    }
+}
@@ -0,0 +1,17 @@
+package com12.facturacion.infra.security;
+
+import java.time.Instant;
+
+/**
+ * Claims de un JWT ya verificado. {@code jti} identifica al token para poder revocarlo;
+ * {@code issuedAt} tiene precisión de milisegundos (claim {@code iat_ms}).
+ */
+public record TokenClaims(
+        String username,
+        String role,
+        Long id,
+        String jti,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,106 @@
+package com12.facturacion.infra.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revocaciones vigentes, consultadas en cada petición autenticada. Casi ningún
+ * token está revocado, así que un filtro de Bloom los descarta con unas pocas
+ * lecturas de bits y solo ante un "quizás" se consulta el conjunto exacto. El
+ * filtro no admite borrados: las entradas caducadas desaparecen cuando
+ * {@link TokenRevocationService} reconstruye la instancia.
+ */
+class TokenDenylist {
+
+    private static final int BITS_POR_ENTRADA = 10;
+    private static final int FUNCIONES_HASH = 7;
+    private static final int CAPACIDAD_MINIMA = 1024;
+
+    private final AtomicLongArray bits;
+    private final int numeroBits;
+    // jti -> expiración del token en milisegundos
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+    // userId -> tokens emitidos hasta ese milisegundo quedan revocados
+    private final Map<Long, Corte> cortes = new ConcurrentHashMap<>();
+
+    TokenDenylist(int capacidad) {
+        int palabras = (Math.max(CAPACIDAD_MINIMA, capacidad) * BITS_POR_ENTRADA + 63) / 64;
+        this.bits = new AtomicLongArray(palabras);
+        this.numeroBits = palabras * 64;
+    }
+
+    boolean contiene(TokenClaims claims, long ahoraMillis) {
+        if (!cortes.isEmpty() && claims.id() != null) {
+            Corte corte = cortes.get(claims.id());
+            if (corte != null && corte.expiraEn > ahoraMillis
+                    && (claims.issuedAt() == null || claims.issuedAt().toEpochMilli() <= corte.hasta)) {
+                return true;
+            }
+        }
+        String jti = claims.jti();
+        if (jti == null || !quizasContiene(jti)) {
+            return false;
+        }
+        Long expiraEn = tokens.get(jti);
+        return expiraEn != null && expiraEn > ahoraMillis;
+    }
+
+    void revocarToken(String jti, long expiraEnMillis) {
+        tokens.merge(jti, expiraEnMillis, Math::max);
+        int h1 = jti.hashCode();
+        int h2 = mezclar(h1);
+        for (int i = 0; i < FUNCIONES_HASH; i++) {
+            int indice = Math.floorMod(h1 + i * h2, numeroBits);
+            bits.getAndAccumulate(indice >>> 6, 1L << indice, (actual, bit) -> actual | bit);
+        }
+    }
+
+    void revocarUsuario(Long userId, long hastaMillis, long expiraEnMillis) {
+        cortes.merge(userId, new Corte(hastaMillis, expiraEnMillis),
+                (a, b) -> new Corte(Math.max(a.hasta, b.hasta), Math.max(a.expiraEn, b.expiraEn)));
+    }
+
+    // Lleva a una instancia nueva lo que sigue vigente, incluidas revocaciones aún no leídas de la base
+    void copiarVigentesEn(TokenDenylist destino, long ahoraMillis) {
+        tokens.forEach((jti, expiraEn) -> {
+            if (expiraEn > ahoraMillis) {
+                destino.revocarToken(jti, expiraEn);
+            }
+        });
+        cortes.forEach((userId, corte) -> {
+            if (corte.expiraEn > ahoraMillis) {
+                destino.revocarUsuario(userId, corte.hasta, corte.expiraEn);
+            }
+        });
+    }
+
+    int tamano() {
+        return tokens.size() + cortes.size();
+    }
+
+    private boolean quizasContiene(String jti) {
+        int h1 = jti.hashCode();
+        int h2 = mezclar(h1);
+        for (int i = 0; i < FUNCIONES_HASH; i++) {
+            int indice = Math.floorMod(h1 + i * h2, numeroBits);
+            if ((bits.get(indice >>> 6) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Segundo hash para el doble hashing; impar para que recorra todas las posiciones
+    private static int mezclar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+
+    private record Corte(long hasta, long expiraEn) {
+    }
+}
@@ -0,0 +1,124 @@
+package com12.facturacion.infra.security;
+
+import com12.facturacion.models.revocation.RevokedToken;
+import com12.facturacion.models.revocation.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Revocación de tokens JWT. Las revocaciones se guardan en {@code revoked_tokens}
+ * y se consultan desde un {@link TokenDenylist} en memoria, de modo que
+ * verificar un token no agrega consultas a la base de datos. La lista se
+ * reconstruye cada minuto desde la tabla para recoger revocaciones hechas en
+ * otras instancias y soltar las que ya expiraron junto con sus tokens.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Duration duracionToken;
+    private volatile TokenDenylist denylist = new TokenDenylist(0);
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${api.security.token-ttl:12h}") Duration duracionToken) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.duracionToken = duracionToken;
+    }
+
+    public boolean estaRevocado(TokenClaims claims) {
+        return denylist.contiene(claims, System.currentTimeMillis());
+    }
+
+    /**
+     * Revoca un token concreto, p. ej. al cerrar sesión. La revocación dura
+     * hasta que el token expira.
+     */
+    public void revocarToken(TokenClaims claims) {
+        if (claims.jti() == null) {
+            throw new IllegalArgumentException("El token no tiene identificador y no se puede revocar");
+        }
+        Instant expiraEn = claims.expiresAt() != null ? claims.expiresAt() : Instant.now().plus(duracionToken);
+        if (!revokedTokenRepository.existsByJti(claims.jti())) {
+            RevokedToken revocado = new RevokedToken();
+            revocado.setJti(claims.jti());
+            revocado.setUserId(claims.id());
+            revocado.setRevokedAt(LocalDateTime.now());
+            revocado.setExpiresAt(aFecha(expiraEn));
+            revokedTokenRepository.save(revocado);
+        }
+        synchronized (this) {
+            denylist.revocarToken(claims.jti(), expiraEn.toEpochMilli());
+        }
+    }
+
+    /**
+     * Revoca todos los tokens emitidos hasta ahora para el usuario, p. ej. cuando
+     * deja el restaurante o se pierde su tableta. Los inicios de sesión
+     * posteriores no se ven afectados: se compara con {@link TokenClaims#issuedAt()},
+     * que tiene milisegundos.
+     */
+    public void revocarSesiones(Long userId) {
+        Instant ahora = Instant.now();
+        Instant expiraEn = ahora.plus(duracionToken);
+        RevokedToken revocado = new RevokedToken();
+        revocado.setUserId(userId);
+        revocado.setRevokedAt(aFecha(ahora));
+        revocado.setExpiresAt(aFecha(expiraEn));
+        revokedTokenRepository.save(revocado);
+        synchronized (this) {
+            denylist.revocarUsuario(userId, ahora.toEpochMilli(), expiraEn.toEpochMilli());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void reconstruir() {
+        List<RevokedToken> vigentes = revokedTokenRepository.findVigentes(LocalDateTime.now());
+        long ahora = System.currentTimeMillis();
+        synchronized (this) {
+            TokenDenylist anterior = denylist;
+            TokenDenylist nueva = new TokenDenylist(Math.max(vigentes.size(), anterior.tamano()) * 2);
+            for (RevokedToken revocado : vigentes) {
+                long expiraEn = aMillis(revocado.getExpiresAt());
+                if (revocado.getJti() != null) {
+                    nueva.revocarToken(revocado.getJti(), expiraEn);
+                } else if (revocado.getUserId() != null) {
+                    nueva.revocarUsuario(revocado.getUserId(), aMillis(revocado.getRevokedAt()), expiraEn);
+                }
+            }
+            anterior.copiarVigentesEn(nueva, ahora);
+            denylist = nueva;
+        }
+        log.debug("Lista de tokens revocados reconstruida: {} revocaciones vigentes", vigentes.size());
+    }
+
+    @Scheduled(cron = "0 45 4 * * *")
+    @Transactional
+    public void purgarExpiradas() {
+        revokedTokenRepository.deleteExpirados(LocalDateTime.now());
+    }
+
+    private static LocalDateTime aFecha(Instant instante) {
+        return LocalDateTime.ofInstant(instante, ZoneId.systemDefault());
+    }
+
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,6 +1,7 @@
 package com12.facturacion.infra.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
@@ -9,67 +10,110 @@ import com12.facturacion.models.user.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
 @Service
 public class TokenService {
-    @Value("${api.security.secret}")
-    private String apiSecret;
+
+    private static final String ISSUER = "UNOIGUALADOS";
+    private static final String CLAIM_EMITIDO_MS = "iat_ms";
+
+    // Algorithm y JWTVerifier son inmutables y seguros entre hilos: se crean una sola vez
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache();
+    private final TokenRevocationService revocationService;
+    private final Duration duracionToken;
+
+    public TokenService(@Value("${api.security.secret}") String apiSecret,
+                        @Value("${api.security.token-ttl:12h}") Duration duracionToken,
+                        TokenRevocationService revocationService) {
+        this.algorithm = Algorithm.HMAC256(apiSecret);
+        // Sin jti ni exp un token no se podría revocar ni dejaría de valer nunca
+        this.verifier = JWT.require(algorithm).withIssuer(ISSUER)
+                .withClaimPresence("jti")
+                .withClaimPresence("iat")
+                .withClaimPresence("exp")
+                .build();
+        this.duracionToken = duracionToken;
+        this.revocationService = revocationService;
+    }
 
     public String generateToken(User user) {
-        try { Algorithm algorithm = Algorithm.HMAC256(apiSecret);
-            return JWT.create() .withIssuer("UNOIGUALADOS")
+        Instant ahora = Instant.now();
+        // iat va en segundos enteros; iat_ms permite distinguir un token emitido
+        // justo antes de revocar las sesiones de uno emitido justo después
+        try {
+            return JWT.create() .withIssuer(ISSUER)
+                    .withJWTId(UUID.randomUUID().toString())
                     .withSubject(user.getUsername())
                     .withClaim("role", user.getRole().name())
                     .withClaim("id", user.getId())
+                    .withIssuedAt(ahora)
+                    .withClaim(CLAIM_EMITIDO_MS, ahora.toEpochMilli())
+                    .withExpiresAt(ahora.plus(duracionToken))
                     .sign(algorithm);
         } catch (JWTCreationException exception) {
             throw new RuntimeException("Error al crear el token JWT", exception);
         }
     }
 
-    public String getNameToken(String token) {
+    /**
+     * Verifica el token una sola vez y devuelve usuario, rol e id juntos. Un token
+     * verificado hace poco se responde desde caché sin volver a calcular la firma;
+     * la revocación se comprueba siempre, también con acierto en caché.
+     */
+    public TokenClaims verificar(String token) {
         if (token == null || token.isEmpty()) {
             throw new RuntimeException("Token es null o está vacío");
         }
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(apiSecret);
-            DecodedJWT decodedJWT = JWT.require(algorithm)
-                    .withIssuer("UNOIGUALADOS")
-                    .build()
-                    .verify(token);
-            String subject = decodedJWT.getSubject();
-
-            if (subject == null || subject.isEmpty()) {
-                throw new RuntimeException("El subject del token es inválido");
-            }
+        long ahora = System.currentTimeMillis();
+        TokenClaims claims = verifiedTokens.get(token, ahora);
+        if (claims != null) {
+            return noRevocado(claims);
+        }
 
-            return subject;
+        DecodedJWT decodedJWT;
+        try {
+            decodedJWT = verifier.verify(token);
         } catch (JWTVerificationException exception) {
-            System.err.println("Error verificando el token JWT: " + exception.getMessage());
-            throw new RuntimeException("Token inválido o verificación fallida");
+            throw new RuntimeException("Token inválido o verificación fallida: " + exception.getMessage());
         }
-    }
 
-    public String getRoleFromToken(String token) {
-        if (token == null || token.isEmpty()) {
-            throw new RuntimeException("Token es null o está vacío");
+        String subject = decodedJWT.getSubject();
+        if (subject == null || subject.isEmpty()) {
+            throw new RuntimeException("El subject del token es inválido");
+        }
+        String role = decodedJWT.getClaim("role").asString();
+        if (role == null || role.isEmpty()) {
+            throw new RuntimeException("El rol del token es inválido");
         }
 
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(apiSecret);
-            DecodedJWT decodedJWT = JWT.require(algorithm)
-                    .withIssuer("UNOIGUALADOS")
-                    .build()
-                    .verify(token);
+        claims = new TokenClaims(subject, role, decodedJWT.getClaim("id").asLong(), decodedJWT.getId(),
+                emitidoEn(decodedJWT), decodedJWT.getExpiresAtAsInstant());
+        verifiedTokens.put(token, claims, ahora);
+        return noRevocado(claims);
+    }
 
-            String role = decodedJWT.getClaim("role").asString();
-            if (role == null || role.isEmpty()) {
-                throw new RuntimeException("El rol del token es inválido");
-            }
-            return role;
-        } catch (JWTVerificationException exception) {
-            System.err.println("Error verificando el token JWT: " + exception.getMessage());
-            throw new RuntimeException("Token inválido o verificación fallida");
-        }
+    /**
+     * Revoca el token recibido, que debe ser válido. Las peticiones siguientes con él se rechazan.
+     */
+    public void revocar(String token) {
+        revocationService.revocarToken(verificar(token));
+    }
+
+    // Tokens anteriores a iat_ms: el segundo de iat, que ante la duda los deja del lado revocado
+    private static Instant emitidoEn(DecodedJWT decodedJWT) {
+        Long emitidoMs = decodedJWT.getClaim(CLAIM_EMITIDO_MS).asLong();
+        return emitidoMs != null ? Instant.ofEpochMilli(emitidoMs) : decodedJWT.getIssuedAtAsInstant();
     }
 
+    private TokenClaims noRevocado(TokenClaims claims) {
+        if (revocationService.estaRevocado(claims)) {
+            throw new RuntimeException("El token fue revocado");
+        }
+        return claims;
+    }
 }
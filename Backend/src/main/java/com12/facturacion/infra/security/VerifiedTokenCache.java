@@ -0,0 +1,60 @@
+package com12.facturacion.infra.security;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens cuya firma ya se verificó, para que las peticiones siguientes con el
+ * mismo bearer no repitan el HMAC. Una entrada vive como máximo {@link #TTL} y
+ * nunca más allá de la expiración del propio token. Al superar el tamaño máximo
+ * se descartan primero las caducadas y, si no alcanza, entradas cualquiera: un
+ * fallo de caché solo cuesta una verificación.
+ */
+class VerifiedTokenCache {
+
+    static final int MAX_ENTRADAS = 10_000;
+    static final Duration TTL = Duration.ofMinutes(10);
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    TokenClaims get(String token, long ahoraMillis) {
+        Entrada entrada = entradas.get(token);
+        if (entrada == null) {
+            return null;
+        }
+        if (entrada.expiraEn <= ahoraMillis) {
+            entradas.remove(token, entrada);
+            return null;
+        }
+        return entrada.claims;
+    }
+
+    void put(String token, TokenClaims claims, long ahoraMillis) {
+        long expiraEn = ahoraMillis + TTL.toMillis();
+        if (claims.expiresAt() != null) {
+            expiraEn = Math.min(expiraEn, claims.expiresAt().toEpochMilli());
+        }
+        if (expiraEn <= ahoraMillis) {
+            return;
+        }
+        if (entradas.size() >= MAX_ENTRADAS) {
+            liberarEspacio(ahoraMillis);
+        }
+        entradas.put(token, new Entrada(claims, expiraEn));
+    }
+
+    private void liberarEspacio(long ahoraMillis) {
+        entradas.values().removeIf(entrada -> entrada.expiraEn <= ahoraMillis);
+        Iterator<String> it = entradas.keySet().iterator();
+        int aQuitar = entradas.size() - MAX_ENTRADAS * 9 / 10;
+        while (aQuitar-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Entrada(TokenClaims claims, long expiraEn) {
+    }
+}
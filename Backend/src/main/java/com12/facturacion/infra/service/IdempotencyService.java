@@ -0,0 +1,183 @@
+package com12.facturacion.infra.service;
+
+import com12.facturacion.infra.erros.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Guarda la respuesta de cada operación identificada por un {@code Idempotency-Key}
+ * para que los reintentos del cliente devuelvan el resultado original sin repetirla.
+ * Las claves se agrupan por usuario y operación y caducan tras {@link #TTL}. Por
+ * encima de {@link #MAX_ENTRADAS} se descartan las respuestas ya terminadas más
+ * antiguas; las ejecuciones en curso nunca se descartan, así que el almacén solo
+ * supera el límite en tantas entradas como peticiones haya en curso a la vez. Un
+ * duplicado que llega mientras la primera ejecución sigue en curso espera su
+ * resultado en lugar de competir con ella.
+ */
+@Service
+public class IdempotencyService {
+
+    static final int MAX_ENTRADAS = 10_000;
+    static final Duration TTL = Duration.ofMinutes(15);
+    private static final Duration ESPERA_MAXIMA = Duration.ofSeconds(30);
+
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, false);
+    // Entradas cuya ejecución no terminó; se protege con el mismo lock que entradas
+    private int enCurso;
+
+    // Serialización canónica del cuerpo: propiedades y claves de mapas en orden alfabético
+    private final ObjectMapper canonico = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    /**
+     * Ejecuta {@code operacion} una sola vez por clave. Sin clave se ejecuta siempre.
+     *
+     * @param clave     valor de la cabecera {@code Idempotency-Key}, puede ser nulo
+     * @param operacion identifica el endpoint y el recurso, p. ej. {@code "PUT /ventas/5/completar"}
+     * @param solicitud cuerpo de la petición; reutilizar la clave con otro cuerpo es un error
+     */
+    public <T> T ejecutar(String clave, String operacion, Object solicitud, Supplier<T> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        String id = usuarioActual() + "|" + operacion + "|" + clave.trim();
+        byte[] huella = huella(solicitud);
+
+        Entrada entrada;
+        boolean propietario = false;
+        synchronized (entradas) {
+            purgarCaducadas(System.nanoTime());
+            entrada = entradas.get(id);
+            if (entrada == null) {
+                entrada = new Entrada(huella, System.nanoTime() + TTL.toNanos());
+                entradas.put(id, entrada);
+                enCurso++;
+                propietario = true;
+                if (entradas.size() > MAX_ENTRADAS) {
+                    descartarTerminadas();
+                }
+            }
+        }
+
+        if (!MessageDigest.isEqual(entrada.huella, huella)) {
+            throw new IllegalArgumentException("El Idempotency-Key ya se usó con una solicitud distinta");
+        }
+        if (propietario) {
+            return ejecutarComoPropietario(id, entrada, accion);
+        }
+        return esperarResultado(entrada);
+    }
+
+    private <T> T ejecutarComoPropietario(String id, Entrada entrada, Supplier<T> accion) {
+        try {
+            T resultado = accion.get();
+            entrada.resultado.complete(resultado);
+            synchronized (entradas) {
+                enCurso--;
+            }
+            return resultado;
+        } catch (RuntimeException e) {
+            // Un fallo no se memoriza: el cliente puede reintentar con la misma clave.
+            synchronized (entradas) {
+                entradas.remove(id, entrada);
+                enCurso--;
+            }
+            entrada.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T esperarResultado(Entrada entrada) {
+        try {
+            return (T) entrada.resultado.get(ESPERA_MAXIMA.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("La solicitud original con este Idempotency-Key sigue en proceso");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("La solicitud original con este Idempotency-Key sigue en proceso");
+        }
+    }
+
+    // Todas las entradas comparten el mismo TTL, así que el orden de inserción es el de caducidad.
+    private void purgarCaducadas(long ahora) {
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (entrada.expiraEn - ahora > 0) {
+                break;
+            }
+            if (entrada.resultado.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    // Quitar una ejecución en curso dejaría pasar un reintento concurrente y la operación se haría dos veces.
+    // Con enCurso se sabe si queda algo terminado que quitar: el recorrido salta a lo sumo esas
+    // entradas y, si todas están en curso, ni siquiera empieza.
+    private void descartarTerminadas() {
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (entradas.size() > MAX_ENTRADAS && entradas.size() > enCurso && it.hasNext()) {
+            if (it.next().resultado.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    // SHA-256 del JSON canónico: no depende de equals/hashCode del DTO ni choca como un hash de 32 bits
+    private byte[] huella(Object solicitud) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(canonico.writeValueAsString(solicitud).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo leer la solicitud", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String usuarioActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "anonimo";
+    }
+
+    private static final class Entrada {
+        private final byte[] huella;
+        private final long expiraEn;
+        private final CompletableFuture<Object> resultado = new CompletableFuture<>();
+
+        private Entrada(byte[] huella, long expiraEn) {
+            this.huella = huella;
+            this.expiraEn = expiraEn;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com12.facturacion.infra.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantiene las particiones mensuales de {@code sales} y {@code sale_details}
+ * cuando la base de datos fue convertida con {@code db/particionar-ventas.sql}.
+ * Crea con antelación las particiones de los próximos meses y permite retirar
+ * meses completos con DETACH + DROP en lugar de borrar fila por fila. Sin
+ * particionado todas las operaciones son no-ops.
+ */
+@Service
+public class SalePartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalePartitionService.class);
+
+    static final int MESES_POR_ADELANTADO = 3;
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean particionado;
+
+    public SalePartitionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean estaParticionado() {
+        Boolean valor = particionado;
+        if (valor == null) {
+            valor = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                            "JOIN pg_class c ON c.oid = pt.partrelid " +
+                            "WHERE c.relname = 'sales' AND c.relnamespace = current_schema()::regnamespace)",
+                    Boolean.class));
+            particionado = valor;
+        }
+        return valor;
+    }
+
+    // Una venta cuya fecha no cae en ninguna partición no se puede insertar, así que se crean con margen
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 30 2 * * *")
+    public void asegurarParticiones() {
+        particionado = null;
+        if (!estaParticionado()) {
+            return;
+        }
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= MESES_POR_ADELANTADO; i++) {
+            crearParticion(actual.plusMonths(i));
+        }
+    }
+
+    /**
+     * Retira las particiones de los meses anteriores a {@code mes}. Las de
+     * {@code sale_details} se quitan primero porque referencian a las de {@code sales}.
+     * Un mes que todavía tiene ventas pendientes se conserva.
+     *
+     * @return meses eliminados
+     */
+    public List<YearMonth> eliminarParticionesAnterioresA(YearMonth mes) {
+        List<YearMonth> eliminados = new ArrayList<>();
+        if (!estaParticionado()) {
+            return eliminados;
+        }
+        for (YearMonth particion : particionesDeVentas()) {
+            if (!particion.isBefore(mes)) {
+                continue;
+            }
+            String sufijo = particion.format(SUFIJO);
+            if (tienePendientes("sales_" + sufijo)) {
+                log.warn("La partición de ventas {} tiene ventas pendientes y no se elimina", sufijo);
+                continue;
+            }
+            retirar("sale_details", "sale_details_" + sufijo);
+            retirar("sales", "sales_" + sufijo);
+            eliminados.add(particion);
+            log.info("Partición de ventas {} eliminada", sufijo);
+        }
+        return eliminados;
+    }
+
+    private void crearParticion(YearMonth mes) {
+        String sufijo = mes.format(SUFIJO);
+        LocalDate desde = mes.atDay(1);
+        LocalDate hasta = mes.plusMonths(1).atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sales_" + sufijo + " PARTITION OF sales " +
+                "FOR VALUES FROM ('" + desde + "') TO ('" + hasta + "')");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sale_details_" + sufijo + " PARTITION OF sale_details " +
+                "FOR VALUES FROM ('" + desde + "') TO ('" + hasta + "')");
+    }
+
+    private List<YearMonth> particionesDeVentas() {
+        List<String> nombres = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'sales' AND p.relnamespace = current_schema()::regnamespace " +
+                        "ORDER BY c.relname",
+                String.class);
+        List<YearMonth> meses = new ArrayList<>();
+        for (String nombre : nombres) {
+            if (nombre.matches("sales_\\d{4}_\\d{2}")) {
+                meses.add(YearMonth.parse(nombre.substring("sales_".length()), SUFIJO));
+            }
+        }
+        return meses;
+    }
+
+    private boolean tienePendientes(String particion) {
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, particion);
+        if (!Boolean.TRUE.equals(existe)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + particion + " WHERE status = 'PENDIENTE')", Boolean.class));
+    }
+
+    private void retirar(String padre, String particion) {
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, particion);
+        if (!Boolean.TRUE.equals(existe)) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + padre + " DETACH PARTITION " + particion);
+        jdbcTemplate.execute("DROP TABLE " + particion);
+    }
+}
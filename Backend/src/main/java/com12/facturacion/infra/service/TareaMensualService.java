@@ -1,6 +1,6 @@
 package com12.facturacion.infra.service;
 
-import com12.facturacion.models.sale.SaleService;
+import com12.facturacion.models.archive.SaleArchiveService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -12,15 +12,15 @@ import java.time.LocalDateTime;
 @Service
 public class TareaMensualService {
 
-    private final SaleService saleService;
+    private final SaleArchiveService saleArchiveService;
 
-    public TareaMensualService(SaleService saleService) {
-        this.saleService = saleService;
+    public TareaMensualService(SaleArchiveService saleArchiveService) {
+        this.saleArchiveService = saleArchiveService;
     }
 
     @Scheduled(cron = "0 0 3 1 * *") 
     public void limpiarVentasAntiguas() {
         LocalDateTime haceUnMes = LocalDateTime.now().minusMonths(1);
-        saleService.eliminarVentasAnterioresA(haceUnMes);
+        saleArchiveService.archivarAnterioresA(haceUnMes);
     }
 }
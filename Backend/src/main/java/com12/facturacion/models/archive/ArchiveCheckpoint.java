@@ -0,0 +1,38 @@
+package com12.facturacion.models.archive;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progreso del archivado. Se actualiza en la misma transacción que mueve cada
+ * lote, así que tras una caída el trabajo continúa con la misma fecha de corte
+ * desde la última venta archivada.
+ */
+@Data
+@Entity(name = "ArchiveCheckpoint")
+@Table(name = "archive_checkpoints")
+public class ArchiveCheckpoint {
+
+    @Id
+    private String job;
+
+    @Column(name = "fecha_corte", nullable = false)
+    private LocalDateTime fechaCorte;
+
+    @Column(name = "ultima_fecha")
+    private LocalDateTime ultimaFecha;
+
+    @Column(name = "ultima_venta_id")
+    private Long ultimaVentaId;
+
+    @Column(name = "ventas_archivadas", nullable = false)
+    private Long ventasArchivadas;
+
+    @Column(name = "en_curso", nullable = false)
+    private boolean enCurso;
+
+    @Column(nullable = false)
+    private LocalDateTime actualizado;
+}
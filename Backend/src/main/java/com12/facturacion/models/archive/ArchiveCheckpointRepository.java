@@ -0,0 +1,8 @@
+package com12.facturacion.models.archive;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchiveCheckpointRepository extends JpaRepository<ArchiveCheckpoint, String> {
+}
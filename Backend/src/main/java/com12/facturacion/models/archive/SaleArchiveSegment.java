@@ -0,0 +1,41 @@
+package com12.facturacion.models.archive;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Un lote de ventas archivadas: las ventas con sus líneas serializadas como
+ * NDJSON (un {@code SaleDTO} por línea) y comprimidas con gzip. {@code desde} y
+ * {@code hasta} delimitan las fechas contenidas para consultar solo los lotes
+ * que se solapan con un rango.
+ */
+@Data
+@Entity(name = "SaleArchiveSegment")
+@Table(name = "sales_archive_segments",
+        indexes = @Index(name = "idx_archive_segments_rango", columnList = "desde, hasta"))
+public class SaleArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime desde;
+
+    @Column(nullable = false)
+    private LocalDateTime hasta;
+
+    @Column(nullable = false)
+    private Integer ventas;
+
+    @Column(nullable = false)
+    private Integer lineas;
+
+    @Column(nullable = false)
+    private byte[] datos;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,16 @@
+package com12.facturacion.models.archive;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SaleArchiveSegmentRepository extends JpaRepository<SaleArchiveSegment, Long> {
+
+    @Query("SELECT a FROM SaleArchiveSegment a WHERE a.desde <= :fin AND a.hasta >= :inicio ORDER BY a.desde, a.id")
+    List<SaleArchiveSegment> findOverlapping(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+}
@@ -0,0 +1,250 @@
+package com12.facturacion.models.archive;
+
+import com12.facturacion.infra.service.SalePartitionService;
+import com12.facturacion.models.sale.SaleDTO;
+import com12.facturacion.models.sale.SaleHeader;
+import com12.facturacion.models.sale.SaleRepository;
+import com12.facturacion.models.sale.StatusSale;
+import com12.facturacion.models.saledetail.SaleDetailDTO;
+import com12.facturacion.models.saledetail.SaleDetailRepository;
+import com12.facturacion.models.saledetail.SaleDetailRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mueve las ventas cerradas anteriores a una fecha de corte a segmentos
+ * comprimidos en {@code sales_archive_segments}. Cada lote se copia, se borra
+ * de {@code sales}/{@code sale_details} y actualiza el checkpoint en una sola
+ * transacción corta, de modo que nunca se bloquea la tabla completa y una
+ * ejecución interrumpida se retoma donde quedó.
+ * <p>
+ * Si las tablas están particionadas por mes el corte se redondea al inicio del
+ * mes: los lotes solo se copian, avanzando por el checkpoint, y al final se
+ * retiran las particiones completas. Un mes con ventas pendientes no se puede
+ * retirar sin perder la cuenta abierta, así que el corte se adelanta al inicio
+ * del mes de la pendiente más antigua.
+ */
+@Service
+public class SaleArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleArchiveService.class);
+
+    static final String JOB_VENTAS = "ventas";
+    static final int TAMANO_LOTE = 500;
+    private static final LocalDateTime INICIO_KEYSET = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final SaleRepository ventaRepository;
+    private final SaleDetailRepository detalleVentaRepository;
+    private final SaleArchiveSegmentRepository segmentRepository;
+    private final ArchiveCheckpointRepository checkpointRepository;
+    private final SalePartitionService partitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean ejecutando = new AtomicBoolean(false);
+
+    @Autowired
+    public SaleArchiveService(SaleRepository ventaRepository, SaleDetailRepository detalleVentaRepository,
+                              SaleArchiveSegmentRepository segmentRepository,
+                              ArchiveCheckpointRepository checkpointRepository,
+                              SalePartitionService partitionService,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.ventaRepository = ventaRepository;
+        this.detalleVentaRepository = detalleVentaRepository;
+        this.segmentRepository = segmentRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.partitionService = partitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Archiva las ventas anteriores a {@code fechaCorte}. Si hay una ejecución
+     * previa sin terminar se continúa con su fecha de corte original.
+     *
+     * @return ventas archivadas en esta llamada
+     */
+    public long archivarAnterioresA(LocalDateTime fechaCorte) {
+        if (!ejecutando.compareAndSet(false, true)) {
+            log.info("Archivado de ventas ya en ejecución, se omite");
+            return 0;
+        }
+        try {
+            boolean particionado = partitionService.estaParticionado();
+            LocalDateTime corteSolicitado = particionado ? corteParticionado(fechaCorte) : fechaCorte;
+            ArchiveCheckpoint checkpoint = transactionTemplate.execute(status -> iniciar(corteSolicitado));
+            LocalDateTime corte = checkpoint.getFechaCorte();
+            long total = 0;
+            int movidas;
+            do {
+                movidas = transactionTemplate.execute(status -> archivarLote(corte, particionado));
+                total += movidas;
+            } while (movidas == TAMANO_LOTE);
+
+            if (particionado) {
+                partitionService.eliminarParticionesAnterioresA(YearMonth.from(corte));
+            }
+            transactionTemplate.executeWithoutResult(status -> finalizar());
+            log.info("Archivado de ventas anteriores a {} terminado: {} ventas", corte, total);
+            return total;
+        } finally {
+            ejecutando.set(false);
+        }
+    }
+
+    // Retoma un archivado que se interrumpió (reinicio, caída de la base de datos)
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void reanudarPendiente() {
+        checkpointRepository.findById(JOB_VENTAS)
+                .filter(ArchiveCheckpoint::isEnCurso)
+                .ifPresent(checkpoint -> archivarAnterioresA(checkpoint.getFechaCorte()));
+    }
+
+    /**
+     * Ventas archivadas cuya fecha cae en el rango. Solo se descomprimen los
+     * segmentos que se solapan con él.
+     */
+    @Transactional(readOnly = true)
+    public List<SaleDTO> buscar(LocalDateTime inicio, LocalDateTime fin) {
+        List<SaleDTO> ventas = new ArrayList<>();
+        for (SaleArchiveSegment segmento : segmentRepository.findOverlapping(inicio, fin)) {
+            for (SaleDTO venta : leerSegmento(segmento.getDatos())) {
+                if (!venta.date().isBefore(inicio) && !venta.date().isAfter(fin)) {
+                    ventas.add(venta);
+                }
+            }
+        }
+        return ventas;
+    }
+
+    // Inicio del mes del corte, o antes si algún mes previo aún tiene ventas pendientes
+    private LocalDateTime corteParticionado(LocalDateTime fechaCorte) {
+        LocalDateTime corte = YearMonth.from(fechaCorte).atDay(1).atStartOfDay();
+        LocalDateTime primeraPendiente = ventaRepository.findPrimeraPendienteAntesDe(corte, StatusSale.PENDIENTE);
+        if (primeraPendiente == null) {
+            return corte;
+        }
+        LocalDateTime ajustado = YearMonth.from(primeraPendiente).atDay(1).atStartOfDay();
+        log.warn("Hay ventas pendientes desde {}: el archivado se detiene en {} en lugar de {}",
+                primeraPendiente, ajustado, corte);
+        return ajustado;
+    }
+
+    private ArchiveCheckpoint iniciar(LocalDateTime fechaCorte) {
+        ArchiveCheckpoint checkpoint = checkpointRepository.findById(JOB_VENTAS).orElseGet(() -> {
+            ArchiveCheckpoint nuevo = new ArchiveCheckpoint();
+            nuevo.setJob(JOB_VENTAS);
+            return nuevo;
+        });
+        if (!checkpoint.isEnCurso()) {
+            checkpoint.setFechaCorte(fechaCorte);
+            checkpoint.setUltimaFecha(null);
+            checkpoint.setUltimaVentaId(null);
+            checkpoint.setVentasArchivadas(0L);
+            checkpoint.setEnCurso(true);
+        }
+        checkpoint.setActualizado(LocalDateTime.now());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private int archivarLote(LocalDateTime fechaCorte, boolean particionado) {
+        ArchiveCheckpoint checkpoint = checkpointRepository.findById(JOB_VENTAS).orElseThrow();
+        List<Long> ids = particionado
+                ? ventaRepository.findIdsParaArchivarDesde(fechaCorte,
+                        checkpoint.getUltimaFecha() != null ? checkpoint.getUltimaFecha() : INICIO_KEYSET,
+                        checkpoint.getUltimaVentaId() != null ? checkpoint.getUltimaVentaId() : 0L,
+                        StatusSale.PENDIENTE, Limit.of(TAMANO_LOTE))
+                : ventaRepository.findIdsParaArchivar(fechaCorte, StatusSale.PENDIENTE, Limit.of(TAMANO_LOTE));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<SaleHeader> cabeceras = ventaRepository.findHeadersByIdIn(ids);
+        List<SaleDetailRow> filas = detalleVentaRepository.findRowsBySaleIdIn(ids);
+
+        SaleArchiveSegment segmento = new SaleArchiveSegment();
+        segmento.setDesde(cabeceras.get(0).date());
+        segmento.setHasta(cabeceras.get(cabeceras.size() - 1).date());
+        segmento.setVentas(cabeceras.size());
+        segmento.setLineas(filas.size());
+        segmento.setDatos(comprimir(cabeceras, filas));
+        segmento.setCreatedAt(LocalDateTime.now());
+        segmentRepository.save(segmento);
+
+        if (!particionado) {
+            detalleVentaRepository.deleteBySaleIdIn(ids);
+            ventaRepository.deleteByIdIn(ids);
+        }
+
+        SaleHeader ultima = cabeceras.get(cabeceras.size() - 1);
+        checkpoint.setUltimaFecha(ultima.date());
+        checkpoint.setUltimaVentaId(ultima.id());
+        checkpoint.setVentasArchivadas(checkpoint.getVentasArchivadas() + ids.size());
+        checkpoint.setActualizado(LocalDateTime.now());
+        return ids.size();
+    }
+
+    private void finalizar() {
+        checkpointRepository.findById(JOB_VENTAS).ifPresent(checkpoint -> {
+            checkpoint.setEnCurso(false);
+            checkpoint.setActualizado(LocalDateTime.now());
+        });
+    }
+
+    private byte[] comprimir(List<SaleHeader> cabeceras, List<SaleDetailRow> filas) {
+        Map<Long, List<SaleDetailDTO>> detallesPorVenta = filas.stream()
+                .collect(Collectors.groupingBy(SaleDetailRow::saleId,
+                        Collectors.mapping(SaleDetailRow::toDTO, Collectors.toList())));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            for (SaleHeader c : cabeceras) {
+                SaleDTO venta = new SaleDTO(c.id(), c.userId(), c.tableId(), c.date(), c.total(), c.status(),
+                        c.discount(), c.saleDetail(), detallesPorVenta.getOrDefault(c.id(), List.of()));
+                writer.write(objectMapper.writeValueAsString(venta));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<SaleDTO> leerSegmento(byte[] datos) {
+        List<SaleDTO> ventas = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(datos)), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                ventas.add(objectMapper.readValue(linea, SaleDTO.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ventas;
+    }
+}
@@ -0,0 +1,210 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.rollup.DailyProductSales;
+import com12.facturacion.models.rollup.ProductSales;
+import com12.facturacion.models.rollup.SalesDailyRollupRepository;
+import com12.facturacion.models.sale.SaleCompletedEvent;
+import com12.facturacion.models.sale.SaleRepository;
+import com12.facturacion.models.sale.StatusSale;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Productos más vendidos por ingreso para hoy, la última semana, el último mes
+ * y todo el histórico. Cada venta completada suma sus líneas a un acumulado por
+ * día y producto, y los top se recalculan en ese momento para que consultarlos
+ * sea inmediato. Se reconstruye a partir de {@code sales_daily_rollup}.
+ */
+@Component
+public class BestSellerTracker {
+
+    public static final int TOP_SIZE = 10;
+    private static final int DAYS_KEPT = 31;
+
+    private static final Comparator<BestSellingProduct> BY_INCOME =
+            Comparator.comparing(BestSellingProduct::totalIncome).reversed();
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate snapshotTemplate;
+    private final Object rebuildLock = new Object();
+
+    private final TreeMap<LocalDate, Map<Long, Totals>> byDay = new TreeMap<>();
+    private final Map<Long, Totals> allTime = new HashMap<>();
+    private final Map<Long, String> names = new HashMap<>();
+
+    private volatile Map<BestSellerWindow, List<BestSellingProduct>> top = Map.of();
+    private volatile LocalDate topComputedFor;
+
+    // Ventas completadas mientras se reconstruye; se aplican al terminar sin duplicar las ya leídas
+    private List<SaleCompletedEvent> pendientes;
+
+    @Autowired
+    public BestSellerTracker(SalesDailyRollupRepository rollupRepository, SaleRepository saleRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.saleRepository = saleRepository;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public List<BestSellingProduct> top(BestSellerWindow window) {
+        if (!LocalDate.now().equals(topComputedFor)) {
+            synchronized (this) {
+                recompute();
+            }
+        }
+        return top.getOrDefault(window, List.of());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onSaleCompleted(SaleCompletedEvent event) {
+        if (pendientes != null) {
+            pendientes.add(event);
+            return;
+        }
+        sumar(event);
+        recompute();
+    }
+
+    private void sumar(SaleCompletedEvent event) {
+        LocalDate day = event.date().toLocalDate();
+        Map<Long, Totals> dayTotals = byDay.computeIfAbsent(day, d -> new HashMap<>());
+        for (SaleCompletedEvent.Line line : event.lines()) {
+            names.put(line.productId(), line.productName());
+            dayTotals.computeIfAbsent(line.productId(), id -> new Totals()).add(line.quantity(), line.subtotal());
+            allTime.computeIfAbsent(line.productId(), id -> new Totals()).add(line.quantity(), line.subtotal());
+        }
+    }
+
+    /**
+     * Vuelve a cargar los acumulados desde los rollups. Las ventas completadas
+     * mientras tanto se guardan aparte y al final solo se suman las que no estaban
+     * en la foto leída, que se toma en una única transacción REPEATABLE READ.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pendientes = new ArrayList<>();
+            }
+            try {
+                snapshotTemplate.executeWithoutResult(status -> cargarDesdeRollups());
+            } finally {
+                synchronized (this) {
+                    if (pendientes != null) {
+                        // La carga falló: se conservan los acumulados previos más lo llegado entretanto
+                        pendientes.forEach(this::sumar);
+                        pendientes = null;
+                        recompute();
+                    }
+                }
+            }
+        }
+    }
+
+    private void cargarDesdeRollups() {
+        LocalDate since = LocalDate.now().minusDays(DAYS_KEPT - 1);
+        List<DailyProductSales> daily = rollupRepository.sumByDayAndProductSince(since);
+        List<ProductSales> totals = rollupRepository.sumByProduct();
+
+        synchronized (this) {
+            // Misma foto que los rollups: una venta visible como completada ya está sumada en ellos
+            Set<Long> ids = new HashSet<>();
+            pendientes.forEach(event -> ids.add(event.saleId()));
+            Set<Long> incluidas = ids.isEmpty()
+                    ? Set.of()
+                    : new HashSet<>(saleRepository.findIdsByIdInAndStatus(ids, StatusSale.COMPLETADA));
+
+            byDay.clear();
+            allTime.clear();
+            names.clear();
+            for (DailyProductSales row : daily) {
+                byDay.computeIfAbsent(row.day(), d -> new HashMap<>())
+                        .put(row.productId(), new Totals(row.quantity(), row.income()));
+            }
+            for (ProductSales row : totals) {
+                names.put(row.productId(), row.name());
+                allTime.put(row.productId(), new Totals(row.quantity(), row.income()));
+            }
+            for (SaleCompletedEvent event : pendientes) {
+                if (!incluidas.contains(event.saleId())) {
+                    sumar(event);
+                }
+            }
+            pendientes = null;
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        LocalDate today = LocalDate.now();
+        byDay.headMap(today.minusDays(DAYS_KEPT - 1)).clear();
+
+        Map<BestSellerWindow, List<BestSellingProduct>> computed = new EnumMap<>(BestSellerWindow.class);
+        computed.put(BestSellerWindow.HOY, topOf(merge(today)));
+        computed.put(BestSellerWindow.SEMANA, topOf(merge(today.minusWeeks(1))));
+        computed.put(BestSellerWindow.MES, topOf(merge(today.minusMonths(1))));
+        computed.put(BestSellerWindow.TOTAL, topOf(allTime));
+        top = computed;
+        topComputedFor = today;
+    }
+
+    private Map<Long, Totals> merge(LocalDate since) {
+        Map<Long, Totals> merged = new HashMap<>();
+        byDay.tailMap(since, true).values().forEach(dayTotals ->
+                dayTotals.forEach((productId, totals) ->
+                        merged.computeIfAbsent(productId, id -> new Totals()).add(totals.quantity, totals.income)));
+        return merged;
+    }
+
+    private List<BestSellingProduct> topOf(Map<Long, Totals> totals) {
+        return totals.entrySet().stream()
+                .map(entry -> new BestSellingProduct(
+                        names.getOrDefault(entry.getKey(), String.valueOf(entry.getKey())),
+                        (int) entry.getValue().quantity,
+                        entry.getValue().income))
+                .sorted(BY_INCOME)
+                .limit(TOP_SIZE)
+                .toList();
+    }
+
+    private static final class Totals {
+        private long quantity;
+        private BigDecimal income = BigDecimal.ZERO;
+
+        private Totals() {
+        }
+
+        private Totals(long quantity, BigDecimal income) {
+            this.quantity = quantity;
+            this.income = income;
+        }
+
+        private void add(long quantity, BigDecimal income) {
+            this.quantity += quantity;
+            this.income = this.income.add(income);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com12.facturacion.models.dashboard;
+
+public enum BestSellerWindow {
+    HOY,
+    SEMANA,
+    MES,
+    TOTAL
+}
@@ -0,0 +1,11 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.product.ProductCategory;
+
+import java.math.BigDecimal;
+
+public record CategorySales(
+        ProductCategory category,
+        BigDecimal total
+) {
+}
@@ -0,0 +1,11 @@
+package com12.facturacion.models.dashboard;
+
+public record DashboardCacheMetrics(
+        long hits,
+        long misses,
+        long computations,
+        double lastComputeMillis,
+        double averageComputeMillis,
+        double maxComputeMillis
+) {
+}
@@ -0,0 +1,6 @@
+package com12.facturacion.models.dashboard;
+
+public record DashboardChangedEvent(
+        String reason
+) {
+}
@@ -0,0 +1,122 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.outbox.SaleEventType;
+import com12.facturacion.models.outbox.SaleLifecycleEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publica en {@code /topic/dashboard} solo los campos de {@link DashboardStats}
+ * que cambiaron desde el último envío. Los cambios llegan como eventos (venta
+ * completada, stock modificado) y se agrupan en una ventana corta para que una
+ * ráfaga de ventas produzca un único cálculo y un único mensaje.
+ */
+@Component
+public class DashboardPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardPublisher.class);
+    private static final long DEBOUNCE_MS = 500;
+
+    private final DashboardStatsCache statsCache;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    // Solo se accede desde el hilo del executor
+    private Map<String, Object> lastSent = Map.of();
+
+    @Autowired
+    public DashboardPublisher(DashboardStatsCache statsCache, SimpMessagingTemplate messagingTemplate) {
+        this.statsCache = statsCache;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    // Llega desde el outbox, fuera del hilo de la petición que completó la venta
+    @EventListener
+    public void onSaleLifecycle(SaleLifecycleEvent event) {
+        if (event.type() == SaleEventType.SALE_COMPLETED) {
+            requestRefresh();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onDashboardChanged(DashboardChangedEvent event) {
+        requestRefresh();
+    }
+
+    // Red de seguridad para cambios que no generan evento (por ejemplo, el paso de un día a otro)
+    @Scheduled(fixedRate = 300000)
+    public void refreshPeriodically() {
+        requestRefresh();
+    }
+
+    public void requestRefresh() {
+        if (pending.compareAndSet(false, true)) {
+            executor.schedule(this::publishChanges, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publishChanges() {
+        pending.set(false);
+        try {
+            Map<String, Object> current = toMap(statsCache.refresh());
+            Map<String, Object> changes = new LinkedHashMap<>();
+            current.forEach((field, value) -> {
+                if (!sameValue(value, lastSent.get(field))) {
+                    changes.put(field, value);
+                }
+            });
+            if (changes.isEmpty()) {
+                return;
+            }
+            messagingTemplate.convertAndSend("/topic/dashboard", changes);
+            lastSent = current;
+        } catch (RuntimeException ex) {
+            log.error("Error publicando cambios del dashboard", ex);
+        }
+    }
+
+    private static Map<String, Object> toMap(DashboardStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("dailySales", stats.dailySales());
+        map.put("weeklySales", stats.weeklySales());
+        map.put("monthlySales", stats.monthlySales());
+        map.put("totalProducts", stats.totalProducts());
+        map.put("lowStockProducts", stats.lowStockProducts());
+        map.put("bestSellingProducts", stats.bestSellingProducts());
+        map.put("salesByCategory", stats.salesByCategory());
+        return map;
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof BigDecimal x && b instanceof BigDecimal y) {
+            return x.compareTo(y) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,119 @@
+package com12.facturacion.models.dashboard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instantánea de {@link DashboardStats} con vida corta. Las peticiones que llegan
+ * mientras se calcula esperan ese mismo cálculo en lugar de lanzar otro, y el
+ * publicador del dashboard refresca la misma instantánea que difunde.
+ */
+@Component
+public class DashboardStatsCache {
+
+    private static final long TTL_NANOS = 5_000_000_000L;
+
+    private final DashboardService dashboardService;
+
+    private final AtomicReference<CompletableFuture<DashboardStats>> inFlight = new AtomicReference<>();
+    private volatile Snapshot snapshot;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder totalComputeNanos = new LongAdder();
+    private final AtomicLong lastComputeNanos = new AtomicLong();
+    private final AtomicLong maxComputeNanos = new AtomicLong();
+
+    @Autowired
+    public DashboardStatsCache(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    public DashboardStats get() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.computedAt() < TTL_NANOS) {
+            hits.increment();
+            return current.stats();
+        }
+        misses.increment();
+        return load();
+    }
+
+    /**
+     * Calcula una instantánea nueva. Si hay un cálculo en curso se espera a que
+     * termine y se lanza otro, porque pudo empezar antes del cambio que motivó el refresco.
+     */
+    public DashboardStats refresh() {
+        CompletableFuture<DashboardStats> running = inFlight.get();
+        if (running != null) {
+            try {
+                running.join();
+            } catch (CompletionException ignored) {
+                // El error ya se propagó a quien esperaba ese cálculo
+            }
+        }
+        return load();
+    }
+
+    public DashboardCacheMetrics metrics() {
+        long count = computations.sum();
+        return new DashboardCacheMetrics(
+                hits.sum(),
+                misses.sum(),
+                count,
+                lastComputeNanos.get() / 1_000_000.0,
+                count == 0 ? 0 : totalComputeNanos.sum() / 1_000_000.0 / count,
+                maxComputeNanos.get() / 1_000_000.0
+        );
+    }
+
+    private DashboardStats load() {
+        CompletableFuture<DashboardStats> mine = new CompletableFuture<>();
+        CompletableFuture<DashboardStats> running = inFlight.compareAndExchange(null, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            long start = System.nanoTime();
+            DashboardStats stats = dashboardService.getStatistics();
+            long end = System.nanoTime();
+            record(end - start);
+            snapshot = new Snapshot(stats, end);
+            mine.complete(stats);
+            return stats;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private void record(long elapsed) {
+        computations.increment();
+        totalComputeNanos.add(elapsed);
+        lastComputeNanos.set(elapsed);
+        maxComputeNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private static DashboardStats await(CompletableFuture<DashboardStats> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record Snapshot(DashboardStats stats, long computedAt) {
+    }
+}
@@ -0,0 +1,11 @@
+package com12.facturacion.models.dashboard;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record RevenuePoint(
+        Long saleId,
+        LocalDateTime date,
+        BigDecimal total
+) {
+}
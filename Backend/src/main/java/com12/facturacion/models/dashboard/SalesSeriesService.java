@@ -0,0 +1,101 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.rollup.DailySeriesRow;
+import com12.facturacion.models.rollup.SalesDailyRollupRepository;
+import com12.facturacion.models.sale.SaleRepository;
+import com12.facturacion.models.sale.SalesBucketRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class SalesSeriesService {
+
+    private static final int MAX_BUCKETS = 2000;
+
+    private final SaleRepository saleRepository;
+    private final SalesDailyRollupRepository rollupRepository;
+
+    @Autowired
+    public SalesSeriesService(SaleRepository saleRepository, SalesDailyRollupRepository rollupRepository) {
+        this.saleRepository = saleRepository;
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Ingreso neto y unidades vendidas por bucket entre {@code from} (incluido) y
+     * {@code to} (excluido). Los buckets sin ventas se devuelven en cero. Las series
+     * diarias sin filtro de usuario que cubren días completos salen de los rollups;
+     * el resto se agrega en SQL respetando la hora exacta de {@code from} y {@code to}.
+     */
+    @Transactional(readOnly = true)
+    public List<SeriesPoint> getSeries(SeriesRequest request) {
+        if (request.from() == null || request.to() == null || !request.from().isBefore(request.to())) {
+            throw new IllegalArgumentException("El rango de fechas no es válido");
+        }
+        SeriesBucket bucket = SeriesBucket.from(request.bucket() != null ? request.bucket() : "hour");
+        LocalDateTime first = bucket.truncate(request.from());
+        long buckets = (bucket == SeriesBucket.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS).between(first, request.to()) + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("El rango pedido genera más de " + MAX_BUCKETS + " buckets");
+        }
+
+        Map<LocalDateTime, SeriesPoint> points = bucket == SeriesBucket.DAY && request.usuarioId() == null
+                && esDiaCompleto(request.from()) && esDiaCompleto(request.to())
+                ? fromRollups(request)
+                : fromSales(request, bucket);
+
+        List<SeriesPoint> series = new ArrayList<>();
+        for (LocalDateTime current = first; current.isBefore(request.to()); current = bucket.next(current)) {
+            series.add(points.getOrDefault(current, new SeriesPoint(current, BigDecimal.ZERO, 0L)));
+        }
+        return series;
+    }
+
+    // Los rollups son por día: solo sirven si el rango empieza y termina a medianoche
+    private static boolean esDiaCompleto(LocalDateTime instante) {
+        return instante.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    private Map<LocalDateTime, SeriesPoint> fromRollups(SeriesRequest request) {
+        LocalDate desde = request.from().toLocalDate();
+        // to es excluyente, así que el último día completo es el anterior
+        LocalDate hasta = request.to().toLocalDate().minusDays(1);
+        List<DailySeriesRow> rows = request.categoria() == null
+                ? rollupRepository.sumByDay(desde, hasta)
+                : rollupRepository.sumByDayAndCategory(desde, hasta, request.categoria());
+        Map<LocalDateTime, SeriesPoint> points = new HashMap<>();
+        for (DailySeriesRow row : rows) {
+            LocalDateTime day = row.day().atStartOfDay();
+            points.put(day, new SeriesPoint(day, row.revenue(), row.units()));
+        }
+        return points;
+    }
+
+    private Map<LocalDateTime, SeriesPoint> fromSales(SeriesRequest request, SeriesBucket bucket) {
+        List<SalesBucketRow> rows = saleRepository.sumByBucket(
+                bucket.sqlUnit(),
+                request.from(),
+                request.to(),
+                request.categoria() != null ? request.categoria().name() : null,
+                request.usuarioId());
+        Map<LocalDateTime, SeriesPoint> points = new HashMap<>();
+        for (SalesBucketRow row : rows) {
+            LocalDateTime start = LocalDateTime.ofEpochSecond(row.getBucket(), 0, ZoneOffset.UTC);
+            points.put(start, new SeriesPoint(start, row.getRevenue().setScale(2, RoundingMode.HALF_UP), row.getUnits()));
+        }
+        return points;
+    }
+}
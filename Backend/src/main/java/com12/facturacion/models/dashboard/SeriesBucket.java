@@ -0,0 +1,38 @@
+package com12.facturacion.models.dashboard;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum SeriesBucket {
+    HOUR("hour", ChronoUnit.HOURS),
+    DAY("day", ChronoUnit.DAYS);
+
+    private final String sqlUnit;
+    private final ChronoUnit unit;
+
+    SeriesBucket(String sqlUnit, ChronoUnit unit) {
+        this.sqlUnit = sqlUnit;
+        this.unit = unit;
+    }
+
+    public static SeriesBucket from(String value) {
+        for (SeriesBucket bucket : values()) {
+            if (bucket.sqlUnit.equalsIgnoreCase(value)) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("Bucket no soportado: " + value + " (use hour o day)");
+    }
+
+    public String sqlUnit() {
+        return sqlUnit;
+    }
+
+    public LocalDateTime truncate(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime dateTime) {
+        return dateTime.plus(1, unit);
+    }
+}
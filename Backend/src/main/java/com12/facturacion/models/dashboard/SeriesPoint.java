@@ -0,0 +1,11 @@
+package com12.facturacion.models.dashboard;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record SeriesPoint(
+        LocalDateTime bucket,
+        BigDecimal revenue,
+        Long units
+) {
+}
@@ -0,0 +1,14 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.product.ProductCategory;
+
+import java.time.LocalDateTime;
+
+public record SeriesRequest(
+        LocalDateTime from,
+        LocalDateTime to,
+        String bucket,
+        ProductCategory categoria,
+        Long usuarioId
+) {
+}
@@ -0,0 +1,145 @@
+package com12.facturacion.models.dashboard;
+
+import com12.facturacion.models.sale.SaleCompletedEvent;
+import com12.facturacion.models.sale.SaleRepository;
+import com12.facturacion.models.sale.StatusSale;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ingresos de ventas completadas en memoria, agrupados en buckets por minuto
+ * (últimas 24 horas) y por hora (últimos 32 días). Se alimenta al confirmarse
+ * cada venta y se siembra desde la base de datos al arrancar, de modo que las
+ * cifras diarias, semanales y mensuales del dashboard no consultan la base.
+ */
+@Component
+public class SlidingRevenueCounter {
+
+    private static final int MINUTE_BUCKETS = 24 * 60;
+    private static final int HOUR_BUCKETS = 32 * 24;
+
+    private final SaleRepository saleRepository;
+
+    private final Ring minutes = new Ring(MINUTE_BUCKETS, 60);
+    private final Ring hours = new Ring(HOUR_BUCKETS, 3600);
+
+    // Ventas completadas mientras se siembra; se aplican al terminar sin duplicar las ya leídas
+    private List<SaleCompletedEvent> pendientes = new ArrayList<>();
+
+    @Autowired
+    public SlidingRevenueCounter(SaleRepository saleRepository) {
+        this.saleRepository = saleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        LocalDateTime desde = LocalDateTime.now().minusDays(HOUR_BUCKETS / 24);
+        List<RevenuePoint> puntos = saleRepository.findRevenueSince(desde, StatusSale.COMPLETADA);
+
+        synchronized (this) {
+            Set<Long> sembradas = new HashSet<>();
+            for (RevenuePoint punto : puntos) {
+                add(punto.date(), punto.total());
+                sembradas.add(punto.saleId());
+            }
+            for (SaleCompletedEvent event : pendientes) {
+                if (!sembradas.contains(event.saleId())) {
+                    add(event.date(), event.total());
+                }
+            }
+            pendientes = null;
+        }
+    }
+
+    @TransactionalEventListener
+    public synchronized void onSaleCompleted(SaleCompletedEvent event) {
+        if (pendientes != null) {
+            pendientes.add(event);
+            return;
+        }
+        add(event.date(), event.total());
+    }
+
+    /**
+     * Suma de ingresos desde {@code desde} hasta ahora. Dentro de las últimas 24 horas
+     * la precisión es de un minuto; más atrás, de una hora.
+     */
+    public synchronized BigDecimal sumSince(LocalDateTime desde) {
+        long now = epochSeconds(LocalDateTime.now());
+        long start = epochSeconds(desde);
+        if (now - start <= (long) (MINUTE_BUCKETS - 1) * 60) {
+            return minutes.sumSince(start, now);
+        }
+        return hours.sumSince(start, now);
+    }
+
+    private void add(LocalDateTime date, BigDecimal amount) {
+        if (date == null || amount == null) {
+            return;
+        }
+        long now = epochSeconds(LocalDateTime.now());
+        long second = epochSeconds(date);
+        minutes.add(second, now, amount);
+        hours.add(second, now, amount);
+    }
+
+    private static long epochSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static final class Ring {
+        private final int size;
+        private final long bucketSeconds;
+        private final long[] keys;
+        private final BigDecimal[] amounts;
+
+        private Ring(int size, long bucketSeconds) {
+            this.size = size;
+            this.bucketSeconds = bucketSeconds;
+            this.keys = new long[size];
+            this.amounts = new BigDecimal[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = Long.MIN_VALUE;
+                amounts[i] = BigDecimal.ZERO;
+            }
+        }
+
+        private void add(long second, long now, BigDecimal amount) {
+            long key = Math.floorDiv(second, bucketSeconds);
+            long current = Math.floorDiv(now, bucketSeconds);
+            if (key <= current - size || key > current) {
+                return;
+            }
+            int slot = (int) Math.floorMod(key, (long) size);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                amounts[slot] = BigDecimal.ZERO;
+            }
+            amounts[slot] = amounts[slot].add(amount);
+        }
+
+        private BigDecimal sumSince(long start, long now) {
+            long first = Math.floorDiv(start, bucketSeconds);
+            long current = Math.floorDiv(now, bucketSeconds);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int slot = 0; slot < size; slot++) {
+                long key = keys[slot];
+                if (key >= first && key <= current && key > current - size) {
+                    total = total.add(amounts[slot]);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com12.facturacion.models.kitchen;
+
+import com12.facturacion.models.outbox.SaleEventType;
+import com12.facturacion.models.outbox.SaleLifecycleEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reenvía a las pantallas de cocina ({@code /topic/cocina}) cada ticket nuevo o
+ * modificado. El mensaje lleva el ticket completo, así que una entrega repetida
+ * solo vuelve a pintar el mismo estado.
+ */
+@Component
+public class KitchenScreenPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    public KitchenScreenPublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void onSaleLifecycle(SaleLifecycleEvent event) {
+        if (event.type() == SaleEventType.SALE_CREATED || event.type() == SaleEventType.LINES_CHANGED) {
+            messagingTemplate.convertAndSend("/topic/cocina", event);
+        }
+    }
+}
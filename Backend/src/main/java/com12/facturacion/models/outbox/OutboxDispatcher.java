@@ -0,0 +1,167 @@
+package com12.facturacion.models.outbox;
+
+import com12.facturacion.models.sale.SaleDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Entrega los eventos pendientes del outbox a los {@code @EventListener} de
+ * {@link SaleLifecycleEvent}, en lotes y en su propio hilo, así que un consumidor
+ * lento no retrasa la petición que generó el evento. Un evento se marca como
+ * procesado solo después de que todos los listeners terminan; si alguno falla
+ * se reintenta con espera exponencial y los eventos siguientes de la misma venta
+ * esperan, de modo que cada venta se entrega en orden. Tras {@link #MAX_INTENTOS}
+ * fallos el evento queda en {@code FAILED} y deja de bloquear a los demás.
+ * <p>
+ * Los eventos {@code FAILED} no se reintentan solos: se conservan
+ * {@link #DIAS_RETENCION_FALLIDOS} días con su {@code last_error} para revisarlos y
+ * después se borran. Para reencolar uno a mano basta con volver a ponerlo en
+ * {@code PENDING} con {@code attempts = 0} y {@code next_attempt_at} nulo.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+    static final int TAMANO_LOTE = 100;
+    private static final int DIAS_RETENCION = 7;
+    static final int DIAS_RETENCION_FALLIDOS = 30;
+    private static final int LARGO_MAXIMO_ERROR = 255;
+    static final int MAX_INTENTOS = 10;
+    private static final Duration ESPERA_INICIAL = Duration.ofSeconds(5);
+    private static final Duration ESPERA_MAXIMA = Duration.ofHours(1);
+
+    private final OutboxEventRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository outboxRepository, ApplicationEventPublisher eventPublisher,
+                            ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener
+    public void onRecorded(OutboxRecordedEvent event) {
+        requestDispatch();
+    }
+
+    // Recoge lo que quedó pendiente por reintentos o por un reinicio
+    @Scheduled(fixedDelay = 5000)
+    public void dispatchPeriodically() {
+        requestDispatch();
+    }
+
+    @Scheduled(cron = "0 15 4 * * *")
+    public void purgeProcessed() {
+        LocalDateTime ahora = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteProcesadosAntesDe(ahora.minusDays(DIAS_RETENCION));
+            int fallidos = outboxRepository.deleteFallidosAntesDe(OutboxEventStatus.FAILED,
+                    ahora.minusDays(DIAS_RETENCION_FALLIDOS));
+            if (fallidos > 0) {
+                log.warn("Se borraron {} eventos del outbox que nunca se entregaron", fallidos);
+            }
+        });
+    }
+
+    public void requestDispatch() {
+        if (pending.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        pending.set(false);
+        try {
+            Integer entregados;
+            do {
+                entregados = transactionTemplate.execute(status -> dispatchBatch());
+            } while (entregados != null && entregados == TAMANO_LOTE);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo despachar el outbox de ventas", e);
+        }
+    }
+
+    // Devuelve cuántos eventos se entregaron; menos que un lote completo detiene el ciclo
+    private int dispatchBatch() {
+        List<OutboxEvent> lote = outboxRepository.findPendientes(OutboxEventStatus.PENDING, LocalDateTime.now(),
+                Limit.of(TAMANO_LOTE));
+        Set<Long> ventasDetenidas = new HashSet<>();
+        int entregados = 0;
+        for (OutboxEvent event : lote) {
+            if (ventasDetenidas.contains(event.getSaleId())) {
+                continue;
+            }
+            try {
+                SaleDTO sale = objectMapper.readValue(event.getPayload(), SaleDTO.class);
+                eventPublisher.publishEvent(new SaleLifecycleEvent(event.getId(), event.getType(), sale, event.getCreatedAt()));
+                event.setProcessedAt(LocalDateTime.now());
+                event.setStatus(OutboxEventStatus.PROCESSED);
+                entregados++;
+            } catch (Exception e) {
+                ventasDetenidas.add(event.getSaleId());
+                registrarFallo(event, e);
+            }
+        }
+        return entregados;
+    }
+
+    private void registrarFallo(OutboxEvent event, Exception e) {
+        int intentos = event.getAttempts() + 1;
+        event.setAttempts(intentos);
+        event.setLastError(recortar(e.toString()));
+        if (intentos >= MAX_INTENTOS) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            log.error("Evento {} de la venta {} descartado tras {} intentos",
+                    event.getId(), event.getSaleId(), intentos, e);
+            return;
+        }
+        event.setNextAttemptAt(LocalDateTime.now().plus(espera(intentos)));
+        log.warn("Evento {} de la venta {} no entregado (intento {})",
+                event.getId(), event.getSaleId(), intentos, e);
+    }
+
+    // 5 s, 10 s, 20 s... hasta una hora
+    static Duration espera(int intentos) {
+        Duration espera = ESPERA_INICIAL.multipliedBy(1L << Math.min(intentos - 1, 20));
+        return espera.compareTo(ESPERA_MAXIMA) > 0 ? ESPERA_MAXIMA : espera;
+    }
+
+    private static String recortar(String mensaje) {
+        return mensaje.length() <= LARGO_MAXIMO_ERROR ? mensaje : mensaje.substring(0, LARGO_MAXIMO_ERROR);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,58 @@
+package com12.facturacion.models.outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento del ciclo de vida de una venta, escrito en la misma transacción que el
+ * cambio que lo origina. Sigue en {@code PENDING} hasta que {@link OutboxDispatcher}
+ * lo entrega a todos los listeners; tras cada fallo espera hasta
+ * {@code nextAttemptAt} y, agotados los intentos, queda en {@code FAILED}.
+ */
+@Data
+@Entity(name = "OutboxEvent")
+@Table(name = "outbox_events",
+        indexes = {
+                @Index(name = "idx_outbox_status_id", columnList = "status, id"),
+                @Index(name = "idx_outbox_sale_id", columnList = "sale_id, id")
+        })
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sale_id", nullable = false)
+    private Long saleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SaleEventType type;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Con default para que las filas anteriores a la columna queden pendientes
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'PENDING'")
+    @Column(nullable = false, length = 20)
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error")
+    private String lastError;
+}
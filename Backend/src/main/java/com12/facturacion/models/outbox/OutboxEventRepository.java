@@ -0,0 +1,33 @@
+package com12.facturacion.models.outbox;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Listos para entregar: sin espera pendiente y sin un evento anterior de la misma venta aún por entregar
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :pending AND e.processedAt IS NULL " +
+            "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :ahora) " +
+            "AND NOT EXISTS (SELECT 1 FROM OutboxEvent p WHERE p.saleId = e.saleId AND p.id < e.id " +
+            "AND p.status = :pending AND p.processedAt IS NULL) " +
+            "ORDER BY e.id")
+    List<OutboxEvent> findPendientes(@Param("pending") OutboxEventStatus pending,
+                                     @Param("ahora") LocalDateTime ahora,
+                                     Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.processedAt < :antesDe")
+    int deleteProcesadosAntesDe(@Param("antesDe") LocalDateTime antesDe);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :failed AND e.createdAt < :antesDe")
+    int deleteFallidosAntesDe(@Param("failed") OutboxEventStatus failed, @Param("antesDe") LocalDateTime antesDe);
+}
@@ -0,0 +1,5 @@
+package com12.facturacion.models.outbox;
+
+public enum OutboxEventStatus {
+    PENDING, PROCESSED, FAILED
+}
@@ -0,0 +1,5 @@
+package com12.facturacion.models.outbox;
+
+// Aviso interno para despertar al dispatcher cuando la transacción que escribió en el outbox confirma
+record OutboxRecordedEvent() {
+}
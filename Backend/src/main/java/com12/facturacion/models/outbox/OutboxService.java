@@ -0,0 +1,52 @@
+package com12.facturacion.models.outbox;
+
+import com12.facturacion.models.sale.SaleDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxRepository, ObjectMapper objectMapper,
+                         ApplicationEventPublisher eventPublisher) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Registra el evento dentro de la transacción en curso: si la venta no se
+     * confirma, el evento tampoco existe.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(SaleEventType type, SaleDTO sale) {
+        OutboxEvent event = new OutboxEvent();
+        event.setSaleId(sale.id());
+        event.setType(type);
+        event.setPayload(toJson(sale));
+        event.setCreatedAt(LocalDateTime.now());
+        event.setStatus(OutboxEventStatus.PENDING);
+        outboxRepository.save(event);
+        eventPublisher.publishEvent(new OutboxRecordedEvent());
+    }
+
+    private String toJson(SaleDTO sale) {
+        try {
+            return objectMapper.writeValueAsString(sale);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la venta " + sale.id(), e);
+        }
+    }
+}
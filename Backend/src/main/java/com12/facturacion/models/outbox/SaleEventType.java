@@ -0,0 +1,5 @@
+package com12.facturacion.models.outbox;
+
+public enum SaleEventType {
+    SALE_CREATED, LINES_CHANGED, SALE_COMPLETED
+}
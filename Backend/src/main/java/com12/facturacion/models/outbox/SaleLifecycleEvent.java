@@ -0,0 +1,17 @@
+package com12.facturacion.models.outbox;
+
+import com12.facturacion.models.sale.SaleDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lo que reciben los listeners del outbox. La entrega es al menos una vez, así
+ * que un consumidor que no sea idempotente debe descartar {@code eventId} repetidos.
+ */
+public record SaleLifecycleEvent(
+        Long eventId,
+        SaleEventType type,
+        SaleDTO sale,
+        LocalDateTime occurredAt
+) {
+}
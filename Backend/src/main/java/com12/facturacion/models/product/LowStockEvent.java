@@ -0,0 +1,8 @@
+package com12.facturacion.models.product;
+
+import java.util.List;
+
+public record LowStockEvent(
+        List<StockAlertaDTO> productos
+) {
+}
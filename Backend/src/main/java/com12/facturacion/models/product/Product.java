@@ -2,7 +2,6 @@ package com12.facturacion.models.product;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import lombok.Getter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -12,6 +11,8 @@ import java.time.LocalDateTime;
 @Table(name = "products")
 public class Product {
 
+    public static final int STOCK_MINIMO_POR_DEFECTO = 10;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -30,6 +31,10 @@ public class Product {
     @Column(nullable = false)
     private Integer stock;
 
+    // Umbral de alerta de stock bajo; si es null se usa STOCK_MINIMO_POR_DEFECTO
+    @Column(name = "stock_minimo")
+    private Integer stockMinimo;
+
     @Enumerated(EnumType.STRING)
     private ProductCategory category;
 
@@ -39,4 +44,7 @@ public class Product {
     @Column(name = "ultima_actualizacion")
     private LocalDateTime lastUpdate;
 
+    public int umbralStockBajo() {
+        return stockMinimo != null ? stockMinimo : STOCK_MINIMO_POR_DEFECTO;
+    }
 }
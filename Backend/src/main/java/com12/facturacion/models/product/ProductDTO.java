@@ -9,6 +9,7 @@ public record ProductDTO(
     String descripcion,
     String imageUrl,
     Integer stock,
-    ProductCategory tipo
+    ProductCategory tipo,
+    Integer stockMinimo
 ) {
 }
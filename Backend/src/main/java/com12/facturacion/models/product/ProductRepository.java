@@ -1,14 +1,27 @@
 package com12.facturacion.models.product;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
     List<Product> findByCategory(ProductCategory category);
-    List<Product> findByStockLessThan(Integer lowStock);
+
+    @Query("SELECT p FROM Product p WHERE p.stock < COALESCE(p.stockMinimo, " + Product.STOCK_MINIMO_POR_DEFECTO + ")")
+    List<Product> findStockBajo();
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.stock < COALESCE(p.stockMinimo, " + Product.STOCK_MINIMO_POR_DEFECTO + ")")
+    long countStockBajo();
+
+    @Query("SELECT new com12.facturacion.models.product.ProductStockView(p.id, p.name, p.stock, p.stockMinimo) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductStockView> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
     boolean existsByName(String name);
 
 }
@@ -1,9 +1,12 @@
 package com12.facturacion.models.product;
 
+import com12.facturacion.infra.erros.ConflictException;
 import com12.facturacion.infra.erros.ResourceNotFoundException;
 import com12.facturacion.infra.service.CloudinaryService;
+import com12.facturacion.models.dashboard.DashboardChangedEvent;
 import com12.facturacion.models.saledetail.SaleDetailRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -11,6 +14,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,13 +24,15 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CloudinaryService cloudinaryService;
     private final SaleDetailRepository saleDetailRepository;
-    private final Integer STOCK_MINIMO = 10;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ProductService(ProductRepository productRepository, CloudinaryService cloudinaryService, SaleDetailRepository saleDetailRepository) {
+    public ProductService(ProductRepository productRepository, CloudinaryService cloudinaryService,
+                          SaleDetailRepository saleDetailRepository, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.cloudinaryService = cloudinaryService;
         this.saleDetailRepository = saleDetailRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -40,10 +48,12 @@ public class ProductService {
         product.setDescription(productDTO.descripcion());
         product.setImageUrl(imageUrl);
         product.setStock(productDTO.stock());
+        product.setStockMinimo(productDTO.stockMinimo());
         product.setCategory(productDTO.tipo());
         product.setCreateDate(LocalDateTime.now());
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new DashboardChangedEvent("producto creado"));
 
         return convertirProductoDTO(savedProduct);
     }
@@ -58,14 +68,23 @@ public class ProductService {
             product.setImageUrl(imageUrl);
         }
 
+        boolean estabaBajo = product.getStock() < product.umbralStockBajo();
+
         product.setName(productDTO.nombre());
         product.setPrice(productDTO.precio());
         product.setDescription(productDTO.descripcion());
         product.setStock(productDTO.stock());
+        if (productDTO.stockMinimo() != null) {
+            product.setStockMinimo(productDTO.stockMinimo());
+        }
         product.setCategory(productDTO.tipo());
         product.setLastUpdate(LocalDateTime.now());
 
         productRepository.save(product);
+        if (!estabaBajo && product.getStock() < product.umbralStockBajo()) {
+            publicarAlertasStockBajo(List.of(convertirStockAlertaDTO(product)));
+        }
+        eventPublisher.publishEvent(new DashboardChangedEvent("producto actualizado"));
         return convertirProductoDTO(product);
 
     }
@@ -75,6 +94,7 @@ public class ProductService {
         var producto = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         productRepository.delete(producto);
+        eventPublisher.publishEvent(new DashboardChangedEvent("producto eliminado"));
 
     }
 
@@ -97,18 +117,51 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public List<StockAlertaDTO> obtenerProductosStockBajo(){
-        return productRepository.findByStockLessThan(STOCK_MINIMO)
+        return productRepository.findStockBajo()
                 .stream()
                 .map(this::convertirStockAlertaDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Descuenta de forma atómica el stock de todas las líneas de una venta. Si algún
+     * producto no alcanza, no se descuenta nada y se informa la lista de faltantes.
+     * Los productos que quedan por debajo de su umbral generan una única alerta.
+     */
+    @Transactional
+    public void descontarStock(Map<Long, Integer> cantidadesPorProducto) {
+        SortedMap<Long, Integer> cantidades = new TreeMap<>(cantidadesPorProducto);
+        List<Long> insuficientes = productRepository.descontarStock(cantidades);
+
+        if (!insuficientes.isEmpty()) {
+            String detalle = productRepository.findStockByIdIn(insuficientes).stream()
+                    .map(p -> p.name() + " (pedido " + cantidades.get(p.id()) + ", disponible " + p.stock() + ")")
+                    .collect(Collectors.joining(", "));
+            throw new ConflictException("Stock insuficiente para: " + detalle);
+        }
+
+        // Mientras un producto siga por debajo del umbral no se vuelve a alertar
+        List<StockAlertaDTO> alertas = productRepository.findStockByIdIn(cantidades.keySet()).stream()
+                .filter(p -> p.stock() < p.umbralStockBajo()
+                        && p.stock() + cantidades.get(p.id()) >= p.umbralStockBajo())
+                .map(p -> new StockAlertaDTO(p.id(), p.name(), p.stock(), p.umbralStockBajo()))
+                .toList();
+        publicarAlertasStockBajo(alertas);
+    }
+
+    // Se envía al confirmarse la transacción, con todos los productos que cruzaron su umbral en ella
+    private void publicarAlertasStockBajo(List<StockAlertaDTO> alertas) {
+        if (!alertas.isEmpty()) {
+            eventPublisher.publishEvent(new LowStockEvent(alertas));
+        }
+    }
+
     private StockAlertaDTO convertirStockAlertaDTO(Product producto) {
         return new StockAlertaDTO(
                 producto.getId(),
                 producto.getName(),
                 producto.getStock(),
-                STOCK_MINIMO
+                producto.umbralStockBajo()
         );
     }
 
@@ -127,7 +180,8 @@ public class ProductService {
                 product.getDescription(),
                 product.getImageUrl(),
                 product.getStock(),
-                product.getCategory()
+                product.getCategory(),
+                product.getStockMinimo()
         );
     }
 
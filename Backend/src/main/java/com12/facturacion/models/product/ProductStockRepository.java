@@ -0,0 +1,14 @@
+package com12.facturacion.models.product;
+
+import java.util.List;
+import java.util.SortedMap;
+
+public interface ProductStockRepository {
+
+    /**
+     * Descuenta las cantidades indicadas en un único batch de sentencias
+     * {@code UPDATE ... WHERE stock >= ?}. Devuelve los ids de los productos que no
+     * tenían stock suficiente; esos no se modifican y el llamador debe abortar la transacción.
+     */
+    List<Long> descontarStock(SortedMap<Long, Integer> cantidadesPorProducto);
+}
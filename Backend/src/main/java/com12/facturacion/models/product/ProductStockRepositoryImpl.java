@@ -0,0 +1,40 @@
+package com12.facturacion.models.product;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String DESCONTAR_STOCK =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> descontarStock(SortedMap<Long, Integer> cantidadesPorProducto) {
+        // El orden por id hace que dos ventas concurrentes bloqueen las filas en el mismo orden
+        List<Long> ids = new ArrayList<>(cantidadesPorProducto.keySet());
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Map.Entry<Long, Integer> entry : cantidadesPorProducto.entrySet()) {
+            args.add(new Object[]{entry.getValue(), entry.getKey(), entry.getValue()});
+        }
+
+        int[] actualizadas = jdbcTemplate.batchUpdate(DESCONTAR_STOCK, args);
+
+        List<Long> insuficientes = new ArrayList<>();
+        for (int i = 0; i < actualizadas.length; i++) {
+            if (actualizadas[i] == 0) {
+                insuficientes.add(ids.get(i));
+            }
+        }
+        return insuficientes;
+    }
+}
@@ -0,0 +1,12 @@
+package com12.facturacion.models.product;
+
+public record ProductStockView(
+        Long id,
+        String name,
+        Integer stock,
+        Integer stockMinimo
+) {
+    public int umbralStockBajo() {
+        return stockMinimo != null ? stockMinimo : Product.STOCK_MINIMO_POR_DEFECTO;
+    }
+}
@@ -0,0 +1,35 @@
+package com12.facturacion.models.revocation;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revocación de sesiones. Con {@code jti} se revoca un token concreto; sin él
+ * se revocan todos los tokens de {@code userId} emitidos hasta {@code revokedAt}.
+ * La fila deja de importar en {@code expiresAt}, cuando los tokens afectados ya
+ * expiraron por sí mismos.
+ */
+@Data
+@Entity(name = "RevokedToken")
+@Table(name = "revoked_tokens",
+        indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"))
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private String jti;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,23 @@
+package com12.facturacion.models.revocation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    @Query("SELECT r FROM RevokedToken r WHERE r.expiresAt > :ahora")
+    List<RevokedToken> findVigentes(@Param("ahora") LocalDateTime ahora);
+
+    boolean existsByJti(String jti);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :ahora")
+    int deleteExpirados(@Param("ahora") LocalDateTime ahora);
+}
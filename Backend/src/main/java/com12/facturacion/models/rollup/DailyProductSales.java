@@ -0,0 +1,13 @@
+package com12.facturacion.models.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailyProductSales(
+        LocalDate day,
+        Long productId,
+        String name,
+        Long quantity,
+        BigDecimal income
+) {
+}
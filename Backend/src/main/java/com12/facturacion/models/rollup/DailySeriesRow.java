@@ -0,0 +1,11 @@
+package com12.facturacion.models.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailySeriesRow(
+        LocalDate day,
+        BigDecimal revenue,
+        Long units
+) {
+}
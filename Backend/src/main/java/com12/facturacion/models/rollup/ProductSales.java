@@ -0,0 +1,11 @@
+package com12.facturacion.models.rollup;
+
+import java.math.BigDecimal;
+
+public record ProductSales(
+        Long productId,
+        String name,
+        Long quantity,
+        BigDecimal income
+) {
+}
@@ -0,0 +1,46 @@
+package com12.facturacion.models.rollup;
+
+import com12.facturacion.models.product.Product;
+import com12.facturacion.models.product.ProductCategory;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Acumulado diario de ventas completadas por producto. Se mantiene de forma
+ * incremental al completar cada venta para que el dashboard no tenga que
+ * recorrer {@code sales} ni {@code sale_details}.
+ */
+@Data
+@Entity(name = "SalesDailyRollup")
+@Table(name = "sales_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollup_dia_producto", columnNames = {"sale_day", "product_id"}))
+public class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate day;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Enumerated(EnumType.STRING)
+    private ProductCategory category;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Suma de subtotales de línea, antes del descuento de la venta
+    @Column(nullable = false)
+    private BigDecimal income;
+
+    // Parte del descuento de cada venta asignada a este producto, proporcional a su subtotal
+    @Column(nullable = false)
+    private BigDecimal discount;
+}
@@ -0,0 +1,93 @@
+package com12.facturacion.models.rollup;
+
+import com12.facturacion.models.dashboard.CategorySales;
+import com12.facturacion.models.product.ProductCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup (sale_day, product_id, category, quantity, income, discount) " +
+            "VALUES (:day, :productId, :category, :quantity, :income, :discount) " +
+            "ON CONFLICT (sale_day, product_id) DO UPDATE SET " +
+            "category = EXCLUDED.category, " +
+            "quantity = sales_daily_rollup.quantity + EXCLUDED.quantity, " +
+            "income = sales_daily_rollup.income + EXCLUDED.income, " +
+            "discount = sales_daily_rollup.discount + EXCLUDED.discount",
+            nativeQuery = true)
+    void upsert(@Param("day") LocalDate day,
+                @Param("productId") Long productId,
+                @Param("category") String category,
+                @Param("quantity") Integer quantity,
+                @Param("income") BigDecimal income,
+                @Param("discount") BigDecimal discount);
+
+    @Modifying
+    @Query("DELETE FROM SalesDailyRollup r")
+    void deleteAllRollups();
+
+    // Mismo reparto que SalesRollupService#registrarVenta: cada línea recibe su parte redondeada
+    // a 2 decimales y la última (mayor id) se queda con el resto del descuento de la venta
+    @Modifying
+    @Query(value = "WITH lineas AS (" +
+            "SELECT d.sale_id, d.product_id, d.cantidad, d.subtotal, s.date, COALESCE(s.discount, 0) AS descuento, " +
+            "SUM(d.subtotal) OVER (PARTITION BY d.sale_id) AS bruto, " +
+            "ROW_NUMBER() OVER (PARTITION BY d.sale_id ORDER BY d.id DESC) AS desde_el_final " +
+            "FROM sale_details d JOIN sales s ON s.id = d.sale_id " +
+            "WHERE s.status = 'COMPLETADA'), " +
+            "partes AS (" +
+            "SELECT l.*, CASE WHEN l.desde_el_final = 1 OR l.bruto = 0 THEN 0 " +
+            "ELSE ROUND(l.descuento * l.subtotal / l.bruto, 2) END AS parte " +
+            "FROM lineas l), " +
+            "repartido AS (" +
+            "SELECT p.*, CASE WHEN p.desde_el_final = 1 " +
+            "THEN p.descuento - SUM(p.parte) OVER (PARTITION BY p.sale_id) ELSE p.parte END AS descuento_linea " +
+            "FROM partes p) " +
+            "INSERT INTO sales_daily_rollup (sale_day, product_id, category, quantity, income, discount) " +
+            "SELECT CAST(r.date AS date), r.product_id, pr.category, SUM(r.cantidad), SUM(r.subtotal), SUM(r.descuento_linea) " +
+            "FROM repartido r JOIN products pr ON pr.id = r.product_id " +
+            "GROUP BY CAST(r.date AS date), r.product_id, pr.category",
+            nativeQuery = true)
+    int insertFromCompletedSales();
+
+    @Query("SELECT new com12.facturacion.models.dashboard.CategorySales(r.category, SUM(r.income)) " +
+            "FROM SalesDailyRollup r " +
+            "GROUP BY r.category")
+    List<CategorySales> sumIncomeByCategory();
+
+    @Query("SELECT new com12.facturacion.models.rollup.DailyProductSales(" +
+            "r.day, p.id, p.name, SUM(r.quantity), SUM(r.income)) " +
+            "FROM SalesDailyRollup r JOIN r.product p " +
+            "WHERE r.day >= :desde " +
+            "GROUP BY r.day, p.id, p.name")
+    List<DailyProductSales> sumByDayAndProductSince(@Param("desde") LocalDate desde);
+
+    @Query("SELECT new com12.facturacion.models.rollup.ProductSales(" +
+            "p.id, p.name, SUM(r.quantity), SUM(r.income)) " +
+            "FROM SalesDailyRollup r JOIN r.product p " +
+            "GROUP BY p.id, p.name")
+    List<ProductSales> sumByProduct();
+
+    @Query("SELECT new com12.facturacion.models.rollup.DailySeriesRow(r.day, SUM(r.income - r.discount), SUM(r.quantity)) " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.day BETWEEN :desde AND :hasta " +
+            "GROUP BY r.day ORDER BY r.day")
+    List<DailySeriesRow> sumByDay(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT new com12.facturacion.models.rollup.DailySeriesRow(r.day, SUM(r.income - r.discount), SUM(r.quantity)) " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.day BETWEEN :desde AND :hasta AND r.category = :categoria " +
+            "GROUP BY r.day ORDER BY r.day")
+    List<DailySeriesRow> sumByDayAndCategory(@Param("desde") LocalDate desde,
+                                             @Param("hasta") LocalDate hasta,
+                                             @Param("categoria") ProductCategory categoria);
+}
@@ -0,0 +1,113 @@
+package com12.facturacion.models.rollup;
+
+import com12.facturacion.models.product.Product;
+import com12.facturacion.models.product.ProductCategory;
+import com12.facturacion.models.sale.Sale;
+import com12.facturacion.models.saledetail.SaleDetail;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class SalesRollupService {
+
+    private final SalesDailyRollupRepository rollupRepository;
+
+    @Autowired
+    public SalesRollupService(SalesDailyRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Suma una venta completada a los acumulados de su día. Debe llamarse dentro
+     * de la misma transacción que cambia el estado de la venta. El descuento se
+     * reparte igual que en {@link SalesDailyRollupRepository#insertFromCompletedSales()},
+     * así que una reconstrucción no cambia los totales ya mostrados.
+     */
+    @Transactional
+    public void registrarVenta(Sale venta) {
+        List<SaleDetail> detalles = venta.getDetails().stream()
+                .sorted(Comparator.comparing(SaleDetail::getId))
+                .toList();
+        BigDecimal bruto = detalles.stream()
+                .map(SaleDetail::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal descuento = venta.getDiscount() != null ? venta.getDiscount() : BigDecimal.ZERO;
+
+        Map<Long, Acumulado> porProducto = new LinkedHashMap<>();
+        BigDecimal descuentoRestante = descuento;
+        for (int i = 0; i < detalles.size(); i++) {
+            SaleDetail detalle = detalles.get(i);
+            BigDecimal parteDescuento;
+            if (i == detalles.size() - 1) {
+                // La última línea se queda con el resto para que la suma cuadre con el total de la venta
+                parteDescuento = descuentoRestante;
+            } else if (bruto.signum() == 0) {
+                parteDescuento = BigDecimal.ZERO;
+            } else {
+                parteDescuento = descuento.multiply(detalle.getSubtotal()).divide(bruto, 2, RoundingMode.HALF_UP);
+            }
+            descuentoRestante = descuentoRestante.subtract(parteDescuento);
+            Product product = detalle.getProduct();
+            porProducto.computeIfAbsent(product.getId(), id -> new Acumulado(product.getCategory()))
+                    .sumar(detalle.getCantidad(), detalle.getSubtotal(), parteDescuento);
+        }
+
+        LocalDate dia = venta.getDate().toLocalDate();
+        porProducto.forEach((productId, acumulado) -> rollupRepository.upsert(
+                dia,
+                productId,
+                acumulado.categoria != null ? acumulado.categoria.name() : null,
+                acumulado.cantidad,
+                acumulado.ingreso,
+                acumulado.descuento
+        ));
+    }
+
+    /**
+     * Recalcula todos los acumulados a partir de las ventas completadas que siguen
+     * en la base de datos. Las ventas ya purgadas dejan de contar tras la reconstrucción.
+     */
+    @Transactional
+    public int reconstruir() {
+        rollupRepository.deleteAllRollups();
+        return rollupRepository.insertFromCompletedSales();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    @Transactional
+    public void poblarSiEstaVacio() {
+        if (rollupRepository.count() == 0) {
+            reconstruir();
+        }
+    }
+
+    private static class Acumulado {
+        private final ProductCategory categoria;
+        private int cantidad;
+        private BigDecimal ingreso = BigDecimal.ZERO;
+        private BigDecimal descuento = BigDecimal.ZERO;
+
+        private Acumulado(ProductCategory categoria) {
+            this.categoria = categoria;
+        }
+
+        private void sumar(int cantidad, BigDecimal ingreso, BigDecimal descuento) {
+            this.cantidad += cantidad;
+            this.ingreso = this.ingreso.add(ingreso);
+            this.descuento = this.descuento.add(descuento);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com12.facturacion.models.sale;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record ActualizarLineasRequest(
+        @NotEmpty List<@Valid LineaOperacionDTO> operaciones
+) {
+}
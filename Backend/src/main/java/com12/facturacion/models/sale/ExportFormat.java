@@ -0,0 +1,31 @@
+package com12.facturacion.models.sale;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String valor) {
+        for (ExportFormat formato : values()) {
+            if (formato.extension.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + valor);
+    }
+}
@@ -0,0 +1,14 @@
+package com12.facturacion.models.sale;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * SET fija la cantidad (0 elimina la línea), INCREMENTAR suma {@code cantidad}
+ * (negativa para restar) y ELIMINAR quita el producto sin importar la cantidad.
+ */
+public record LineaOperacionDTO(
+        @NotNull TipoOperacionLinea tipo,
+        @NotNull Long productoId,
+        Integer cantidad
+) {
+}
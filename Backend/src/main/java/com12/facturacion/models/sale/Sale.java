@@ -13,7 +13,10 @@ import java.util.List;
 
 @Data
 @Entity(name = "Sale")
-@jakarta.persistence.Table(name = "sales")
+@jakarta.persistence.Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_date_id", columnList = "date, id"),
+        @Index(name = "idx_sales_usuario_date_id", columnList = "usuario_id, date, id")
+})
 public class Sale {
 
     @Id
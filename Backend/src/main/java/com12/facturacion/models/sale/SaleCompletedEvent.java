@@ -0,0 +1,20 @@
+package com12.facturacion.models.sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record SaleCompletedEvent(
+        Long saleId,
+        LocalDateTime date,
+        BigDecimal total,
+        List<Line> lines
+) {
+    public record Line(
+            Long productId,
+            String productName,
+            Integer quantity,
+            BigDecimal subtotal
+    ) {
+    }
+}
@@ -0,0 +1,21 @@
+package com12.facturacion.models.sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Una fila por línea de venta, con la cabecera repetida, para la exportación contable
+public record SaleExportRow(
+        Long saleId,
+        LocalDateTime date,
+        Long userId,
+        Long tableId,
+        StatusSale status,
+        BigDecimal total,
+        BigDecimal discount,
+        String saleDetail,
+        Long productoId,
+        Integer cantidad,
+        BigDecimal precioUnitario,
+        BigDecimal subtotal
+) {
+}
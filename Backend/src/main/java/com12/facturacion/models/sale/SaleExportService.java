@@ -0,0 +1,113 @@
+package com12.facturacion.models.sale;
+
+import com12.facturacion.models.saledetail.SaleDetailDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Exporta ventas con sus líneas leyendo de un cursor de la base de datos y
+ * escribiendo cada fila en la respuesta en cuanto llega. Las filas son
+ * proyecciones, no entidades, así que el contexto de persistencia no crece y la
+ * memoria usada no depende del tamaño del rango.
+ */
+@Service
+public class SaleExportService {
+
+    private static final int BUFFER_ESCRITURA = 64 * 1024;
+    private static final String CABECERA_CSV = "venta_id,fecha,usuario_id,mesa_id,estado,total,descuento,"
+            + "detalle_venta,producto_id,cantidad,precio_unitario,subtotal";
+
+    private final SaleRepository ventaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SaleExportService(SaleRepository ventaRepository, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.ventaRepository = ventaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // Se invoca desde el hilo de StreamingResponseBody, fuera de la transacción de la petición
+    public void exportar(LocalDateTime inicio, LocalDateTime fin, ExportFormat formato, OutputStream salida) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<SaleExportRow> filas = ventaRepository.streamExportRows(inicio, fin)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), BUFFER_ESCRITURA);
+                if (formato == ExportFormat.CSV) {
+                    escribirCsv(filas.iterator(), writer);
+                } else {
+                    escribirNdjson(filas.iterator(), writer);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void escribirCsv(Iterator<SaleExportRow> filas, Writer writer) throws IOException {
+        writer.write(CABECERA_CSV);
+        writer.write('\n');
+        while (filas.hasNext()) {
+            SaleExportRow f = filas.next();
+            writer.write(f.saleId() + "," + f.date() + "," + f.userId() + "," + f.tableId() + "," + f.status() + ","
+                    + f.total().toPlainString() + "," + f.discount().toPlainString() + ","
+                    + csv(f.saleDetail()) + "," + f.productoId() + "," + f.cantidad() + ","
+                    + f.precioUnitario().toPlainString() + "," + f.subtotal().toPlainString());
+            writer.write('\n');
+        }
+    }
+
+    // Una venta por línea con la forma de SaleDTO; las filas llegan ordenadas por venta
+    private void escribirNdjson(Iterator<SaleExportRow> filas, Writer writer) throws IOException {
+        SaleExportRow cabecera = null;
+        List<SaleDetailDTO> detalles = new ArrayList<>();
+        while (filas.hasNext()) {
+            SaleExportRow f = filas.next();
+            if (cabecera != null && !cabecera.saleId().equals(f.saleId())) {
+                escribirVenta(cabecera, detalles, writer);
+                detalles = new ArrayList<>();
+            }
+            cabecera = f;
+            detalles.add(new SaleDetailDTO(f.productoId(), f.cantidad(), f.precioUnitario(), f.subtotal()));
+        }
+        if (cabecera != null) {
+            escribirVenta(cabecera, detalles, writer);
+        }
+    }
+
+    private void escribirVenta(SaleExportRow c, List<SaleDetailDTO> detalles, Writer writer) throws IOException {
+        SaleDTO venta = new SaleDTO(c.saleId(), c.userId(), c.tableId(), c.date(), c.total(), c.status(),
+                c.discount(), c.saleDetail(), detalles);
+        writer.write(objectMapper.writeValueAsString(venta));
+        writer.write('\n');
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
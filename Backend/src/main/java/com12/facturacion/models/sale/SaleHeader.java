@@ -0,0 +1,17 @@
+package com12.facturacion.models.sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Cabecera de una venta leída por proyección: usuario y mesa solo por su FK
+public record SaleHeader(
+        Long id,
+        Long userId,
+        Long tableId,
+        LocalDateTime date,
+        BigDecimal total,
+        StatusSale status,
+        BigDecimal discount,
+        String saleDetail
+) {
+}
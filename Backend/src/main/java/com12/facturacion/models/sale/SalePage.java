@@ -0,0 +1,9 @@
+package com12.facturacion.models.sale;
+
+import java.util.List;
+
+public record SalePage(
+        List<SaleDTO> items,
+        String next
+) {
+}
@@ -1,29 +1,137 @@
 package com12.facturacion.models.sale;
 
+import com12.facturacion.models.dashboard.RevenuePoint;
 import com12.facturacion.models.table.Table;
-import com12.facturacion.models.user.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.hibernate.jpa.HibernateHints;
 
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
-    List<Sale> findByUserAndDateBetween(User user, LocalDateTime inicio, LocalDateTime fin);
-    List<Sale> findByDateBetween(LocalDateTime inicio, LocalDateTime fin);
     List<Sale> findByDateBetweenAndStatus(LocalDateTime start, LocalDateTime end, StatusSale statusSale);
+
+    @Query("SELECT new com12.facturacion.models.sale.SaleHeader(s.id, s.user.id, s.table.id, s.date, " +
+            "s.total, s.status, s.discount, s.saleDetail) " +
+            "FROM Sale s WHERE s.date BETWEEN :inicio AND :fin ORDER BY s.date, s.id")
+    List<SaleHeader> findHeadersByDateBetween(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT new com12.facturacion.models.sale.SaleHeader(s.id, s.user.id, s.table.id, s.date, " +
+            "s.total, s.status, s.discount, s.saleDetail) " +
+            "FROM Sale s WHERE s.user.id = :userId AND s.date BETWEEN :inicio AND :fin ORDER BY s.date, s.id")
+    List<SaleHeader> findHeadersByUserIdAndDateBetween(@Param("userId") Long userId,
+                                                       @Param("inicio") LocalDateTime inicio,
+                                                       @Param("fin") LocalDateTime fin);
+
+    // Keyset sobre (date, id) descendente: cada página es un range scan sobre idx_sales_date_id
+    @Query("SELECT new com12.facturacion.models.sale.SaleHeader(s.id, s.user.id, s.table.id, s.date, " +
+            "s.total, s.status, s.discount, s.saleDetail) " +
+            "FROM Sale s WHERE s.date >= :inicio AND (s.date, s.id) < (:cursorDate, :cursorId) " +
+            "ORDER BY s.date DESC, s.id DESC")
+    List<SaleHeader> findHeaderPage(@Param("inicio") LocalDateTime inicio,
+                                    @Param("cursorDate") LocalDateTime cursorDate,
+                                    @Param("cursorId") Long cursorId,
+                                    Limit limit);
+
+    @Query("SELECT new com12.facturacion.models.sale.SaleHeader(s.id, s.user.id, s.table.id, s.date, " +
+            "s.total, s.status, s.discount, s.saleDetail) " +
+            "FROM Sale s WHERE s.user.id = :userId AND s.date >= :inicio " +
+            "AND (s.date, s.id) < (:cursorDate, :cursorId) " +
+            "ORDER BY s.date DESC, s.id DESC")
+    List<SaleHeader> findHeaderPageByUserId(@Param("userId") Long userId,
+                                            @Param("inicio") LocalDateTime inicio,
+                                            @Param("cursorDate") LocalDateTime cursorDate,
+                                            @Param("cursorId") Long cursorId,
+                                            Limit limit);
+
+    // Cursor de solo avance: debe consumirse dentro de una transacción de solo lectura
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com12.facturacion.models.sale.SaleExportRow(s.id, s.date, s.user.id, s.table.id, s.status, " +
+            "s.total, s.discount, s.saleDetail, d.product.id, d.cantidad, d.precioUnitario, d.subtotal) " +
+            "FROM SaleDetail d JOIN d.sale s WHERE s.date BETWEEN :inicio AND :fin ORDER BY s.date, s.id, d.id")
+    Stream<SaleExportRow> streamExportRows(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    // Serializa las ediciones de un mismo ticket para que los totales por delta no se pisen
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Sale s WHERE s.id = :id")
+    Optional<Sale> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT new com12.facturacion.models.dashboard.RevenuePoint(s.id, s.date, s.total) " +
+            "FROM Sale s WHERE s.date >= :desde AND s.status = :status")
+    List<RevenuePoint> findRevenueSince(@Param("desde") LocalDateTime desde, @Param("status") StatusSale status);
+
+    @Query("SELECT s.id FROM Sale s WHERE s.id IN :ids AND s.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") StatusSale status);
     
-    @Transactional
+    // Ingreso neto por línea: el descuento de cada venta se reparte en proporción al subtotal
+    @Query(value = "SELECT CAST(EXTRACT(EPOCH FROM date_trunc(:unidad, x.date)) AS bigint) AS bucket, " +
+            "SUM(x.neto) AS revenue, SUM(x.cantidad) AS units " +
+            "FROM (" +
+            "  SELECT s.date, d.cantidad, p.category, " +
+            "    d.subtotal - CASE WHEN SUM(d.subtotal) OVER w = 0 THEN 0 " +
+            "      ELSE s.discount * d.subtotal / SUM(d.subtotal) OVER w END AS neto " +
+            "  FROM sales s " +
+            "  JOIN sale_details d ON d.sale_id = s.id " +
+            "  JOIN products p ON p.id = d.product_id " +
+            "  WHERE s.status = 'COMPLETADA' AND s.date >= :desde AND s.date < :hasta " +
+            "    AND (CAST(:usuarioId AS bigint) IS NULL OR s.usuario_id = CAST(:usuarioId AS bigint)) " +
+            "  WINDOW w AS (PARTITION BY s.id)" +
+            ") x " +
+            "WHERE CAST(:categoria AS varchar) IS NULL OR x.category = CAST(:categoria AS varchar) " +
+            "GROUP BY 1 ORDER BY 1",
+            nativeQuery = true)
+    List<SalesBucketRow> sumByBucket(@Param("unidad") String unidad,
+                                     @Param("desde") LocalDateTime desde,
+                                     @Param("hasta") LocalDateTime hasta,
+                                     @Param("categoria") String categoria,
+                                     @Param("usuarioId") Long usuarioId);
+
+    // Venta pendiente más antigua anterior al corte: su mes no se puede retirar
+    @Query("SELECT MIN(s.date) FROM Sale s WHERE s.date < :fechaCorte AND s.status = :pendiente")
+    LocalDateTime findPrimeraPendienteAntesDe(@Param("fechaCorte") LocalDateTime fechaCorte,
+                                              @Param("pendiente") StatusSale pendiente);
+
+    // Ventas cerradas más antiguas que el corte, en el orden en que se archivan
+    @Query("SELECT s.id FROM Sale s WHERE s.date < :fechaCorte AND s.status <> :pendiente ORDER BY s.date, s.id")
+    List<Long> findIdsParaArchivar(@Param("fechaCorte") LocalDateTime fechaCorte,
+                                   @Param("pendiente") StatusSale pendiente,
+                                   Limit limit);
+
+    // Con particionado no se borra fila por fila: se avanza por keyset y luego se retira el mes entero
+    @Query("SELECT s.id FROM Sale s WHERE s.date < :fechaCorte AND (s.date, s.id) > (:cursorDate, :cursorId) " +
+            "AND s.status <> :pendiente ORDER BY s.date, s.id")
+    List<Long> findIdsParaArchivarDesde(@Param("fechaCorte") LocalDateTime fechaCorte,
+                                        @Param("cursorDate") LocalDateTime cursorDate,
+                                        @Param("cursorId") Long cursorId,
+                                        @Param("pendiente") StatusSale pendiente,
+                                        Limit limit);
+
+    @Query("SELECT new com12.facturacion.models.sale.SaleHeader(s.id, s.user.id, s.table.id, s.date, " +
+            "s.total, s.status, s.discount, s.saleDetail) " +
+            "FROM Sale s WHERE s.id IN :ids ORDER BY s.date, s.id")
+    List<SaleHeader> findHeadersByIdIn(@Param("ids") Collection<Long> ids);
+
     @Modifying
-    @Query("DELETE FROM Sale s WHERE s.date < :fechaCorte")
-    void deleteByDateBefore(@Param("fechaCorte") LocalDateTime fechaCorte);
+    @Query("DELETE FROM Sale s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,51 +1,83 @@
 package com12.facturacion.models.sale;
 
+import com12.facturacion.infra.erros.ConflictException;
 import com12.facturacion.infra.erros.ResourceNotFoundException;
+import com12.facturacion.infra.security.AuthenticatedUser;
+import com12.facturacion.models.outbox.OutboxService;
+import com12.facturacion.models.outbox.SaleEventType;
 import com12.facturacion.models.product.Product;
 import com12.facturacion.models.product.ProductRepository;
+import com12.facturacion.models.product.ProductService;
+import com12.facturacion.models.rollup.SalesRollupService;
 import com12.facturacion.models.saledetail.SaleDetail;
 import com12.facturacion.models.saledetail.SaleDetailDTO;
 import com12.facturacion.models.saledetail.SaleDetailRepository;
+import com12.facturacion.models.saledetail.SaleDetailRow;
 import com12.facturacion.models.table.StatusTable;
 import com12.facturacion.models.table.Table;
 import com12.facturacion.models.table.TableRepository;
 import com12.facturacion.models.user.User;
 import com12.facturacion.models.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class SaleService {
 
+    private static final Logger log = LoggerFactory.getLogger(SaleService.class);
+
+    static final int PAGINA_POR_DEFECTO = 50;
+    static final int PAGINA_MAXIMA = 200;
+
     private final SaleRepository ventaRepository;
     private final TableRepository mesaRepository;
     private final ProductRepository productoRepository;
     private final UserRepository usuarioRepository;
     private final SaleDetailRepository detalleVentaRepository;
+    private final ProductService productService;
+    private final SalesRollupService rollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxService outboxService;
 
     @Autowired
     public SaleService(SaleRepository ventaRepository, TableRepository mesaRepository,
             ProductRepository productoRepository, UserRepository usuarioRepository,
-            SaleDetailRepository detalleVentaRepository) {
+            SaleDetailRepository detalleVentaRepository, ProductService productService,
+            SalesRollupService rollupService, ApplicationEventPublisher eventPublisher,
+            OutboxService outboxService) {
         this.ventaRepository = ventaRepository;
         this.mesaRepository = mesaRepository;
         this.productoRepository = productoRepository;
         this.usuarioRepository = usuarioRepository;
         this.detalleVentaRepository = detalleVentaRepository;
+        this.productService = productService;
+        this.rollupService = rollupService;
+        this.eventPublisher = eventPublisher;
+        this.outboxService = outboxService;
     }
 
     @Transactional
     public SaleDTO crearVenta(SaleRequest request) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = usuarioRepository.findUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
+        User user = usuarioActual();
 
         Table table = mesaRepository.findById(request.tableId())
                 .orElseThrow(() -> new ResourceNotFoundException("Mesa no encontrada"));
@@ -54,9 +86,7 @@ public class SaleService {
             throw new IllegalArgumentException("Los detalles de la venta no pueden estar vacíos");
         }
 
-        if (table.getEstado() != StatusTable.LIBRE) {
-            throw new IllegalStateException("La mesa no está disponible");
-        }
+        ocuparMesa(table);
 
         Sale sale = new Sale();
         sale.setUser(user);
@@ -66,9 +96,13 @@ public class SaleService {
         sale.setDiscount(request.discount() != null ? request.discount() : BigDecimal.ZERO);
         sale.setSaleDetail(request.saleDetail());
 
+        Map<Long, Product> productos = resolverProductos(request.detail().stream()
+                .map(SaleDetailDTO::productoId)
+                .collect(Collectors.toList()));
+
         Sale finalSale = sale;
         List<SaleDetail> detalles = request.detail().stream()
-                .map(detalleDTO -> crearDetalleVenta(detalleDTO, finalSale))
+                .map(detalleDTO -> crearDetalleVenta(productos.get(detalleDTO.productoId()), detalleDTO.cantidad(), finalSale))
                 .collect(Collectors.toList());
 
         sale.setDetails(detalles);
@@ -78,15 +112,13 @@ public class SaleService {
         sale.setTotal(totalConDescuento);
 
         sale = ventaRepository.save(sale);
-        table.setEstado(StatusTable.OCUPADA);
-        mesaRepository.save(table);
 
-        return convertToDTO(sale);
+        return registrarEvento(SaleEventType.SALE_CREATED, convertToDTO(sale));
     }
 
     @Transactional
     public SaleDTO completarVenta(Long ventaId) {
-        Sale venta = ventaRepository.findById(ventaId)
+        Sale venta = ventaRepository.findByIdForUpdate(ventaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada"));
 
         if (venta.getStatus() != StatusSale.PENDIENTE) {
@@ -94,121 +126,275 @@ public class SaleService {
         }
 
         venta.setStatus(StatusSale.COMPLETADA);
-        Table mesa = venta.getTable();
-        mesa.setEstado(StatusTable.LIBRE);
-        mesaRepository.save(mesa);
+        // La venta se cobra igual: bloquear el cierre por el estado de la mesa dejaría la cuenta abierta
+        if (mesaRepository.cambiarEstadoSi(venta.getTable().getId(), StatusTable.OCUPADA, StatusTable.LIBRE) == 0) {
+            log.warn("La mesa {} no estaba OCUPADA al completar la venta {}; no se liberó",
+                    venta.getTable().getId(), venta.getId());
+        }
 
-        venta.getDetails().forEach(this::actualizarStock);
-        return convertToDTO(ventaRepository.save(venta));
+        Map<Long, Integer> cantidades = new HashMap<>();
+        venta.getDetails().forEach(d -> cantidades.merge(d.getProduct().getId(), d.getCantidad(), Integer::sum));
+        productService.descontarStock(cantidades);
+        rollupService.registrarVenta(venta);
+        eventPublisher.publishEvent(toCompletedEvent(venta));
+        return registrarEvento(SaleEventType.SALE_COMPLETED, convertToDTO(ventaRepository.save(venta)));
     }
 
     @Transactional
     public SaleDTO agregarProductos(Long saleId, AgregarProductoDTO request) {
-        Sale sale = ventaRepository.findById(saleId)
-                .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada"));
+        Sale sale = cargarVentaPendiente(saleId, "Solo se pueden agregar productos a ventas pendientes");
 
-        if (sale.getStatus() != StatusSale.PENDIENTE) {
-            throw new IllegalStateException("Solo se pueden agregar productos a ventas pendientes");
-        }
-
-        Sale finalSale = sale;
-        List<SaleDetail> nuevosDetalles = request.detail().stream()
+        List<LineaOperacionDTO> operaciones = request.detail().stream()
                 .map(detalle -> {
-                    Product product = productoRepository.findById(detalle.productoId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
-                    SaleDetail sd = new SaleDetail();
-                    sd.setSale(finalSale);
-                    sd.setProduct(product);
-                    sd.setCantidad(detalle.cantidad());
-                    sd.setPrecioUnitario(product.getPrice());
-                    sd.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(detalle.cantidad())));
-                    return sd;
+                    if (detalle.cantidad() <= 0) {
+                        throw new IllegalArgumentException("La cantidad a agregar debe ser mayor a cero");
+                    }
+                    return new LineaOperacionDTO(TipoOperacionLinea.INCREMENTAR, detalle.productoId(), detalle.cantidad());
                 })
                 .collect(Collectors.toList());
+        aplicarOperaciones(sale, operaciones);
 
-        sale.getDetails().addAll(nuevosDetalles);
-        detalleVentaRepository.saveAll(nuevosDetalles);
-
-        BigDecimal totalParcial = calcularTotal(sale.getDetails());
-        BigDecimal totalConDescuento = totalParcial.subtract(sale.getDiscount());
-        sale.setTotal(totalConDescuento);
+        return registrarEvento(SaleEventType.LINES_CHANGED,
+                convertToDTO(ventaRepository.save(sale), detalleVentaRepository.findDtoBySaleId(saleId)));
+    }
 
-        sale = ventaRepository.save(sale);
-        return convertToDTO(sale);
+    @Transactional
+    public SaleDTO actualizarLineas(Long saleId, ActualizarLineasRequest request) {
+        Sale sale = cargarVentaPendiente(saleId, "Solo se pueden modificar ventas pendientes");
+        aplicarOperaciones(sale, request.operaciones());
+        return registrarEvento(SaleEventType.LINES_CHANGED,
+                convertToDTO(ventaRepository.save(sale), detalleVentaRepository.findDtoBySaleId(saleId)));
     }
 
     @Transactional
     public SaleDTO eliminarProductoDeVenta(Long saleId, Long productoId) {
-        Sale sale = ventaRepository.findById(saleId)
-                .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada"));
-
-        if (sale.getStatus() != StatusSale.PENDIENTE) {
-            throw new IllegalStateException("Solo se pueden eliminar productos de ventas pendientes");
-        }
+        Sale sale = cargarVentaPendiente(saleId, "Solo se pueden eliminar productos de ventas pendientes");
 
-        SaleDetail detalle = sale.getDetails().stream()
-                .filter(d -> d.getProduct().getId().equals(productoId))
-                .findFirst()
+        SaleDetail detalle = detalleVentaRepository.findFirstBySaleIdAndProductIdOrderByIdAsc(saleId, productoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado en la venta"));
 
+        BigDecimal subtotalAnterior = detalle.getSubtotal();
+        BigDecimal subtotalNuevo;
         if (detalle.getCantidad() > 1) {
             detalle.setCantidad(detalle.getCantidad() - 1);
             detalle.setSubtotal(detalle.getPrecioUnitario().multiply(BigDecimal.valueOf(detalle.getCantidad())));
-            detalleVentaRepository.save(detalle);
+            subtotalNuevo = detalle.getSubtotal();
         } else {
-            sale.getDetails().remove(detalle);
             detalleVentaRepository.delete(detalle);
+            subtotalNuevo = BigDecimal.ZERO;
         }
 
-        BigDecimal totalParcial = calcularTotal(sale.getDetails());
-        BigDecimal totalConDescuento = totalParcial.subtract(sale.getDiscount());
-        sale.setTotal(totalConDescuento);
-        sale = ventaRepository.save(sale);
-        return convertToDTO(sale);
+        sale.setTotal(sale.getTotal().add(subtotalNuevo.subtract(subtotalAnterior)));
+        return registrarEvento(SaleEventType.LINES_CHANGED,
+                convertToDTO(ventaRepository.save(sale), detalleVentaRepository.findDtoBySaleId(saleId)));
     }
 
     @Transactional
     public SaleDTO actualizarDescuentoYDetalle(Long saleId, BigDecimal discount, String saleDetail) {
-        Sale sale = ventaRepository.findById(saleId)
-                .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada"));
+        Sale sale = cargarVentaPendiente(saleId, "Solo se pueden modificar ventas pendientes");
+
+        BigDecimal descuentoAnterior = sale.getDiscount() != null ? sale.getDiscount() : BigDecimal.ZERO;
+        BigDecimal descuentoNuevo = discount != null ? discount : BigDecimal.ZERO;
+        sale.setDiscount(descuentoNuevo);
+        sale.setSaleDetail(saleDetail);
+        sale.setTotal(sale.getTotal().add(descuentoAnterior).subtract(descuentoNuevo));
+
+        return convertToDTO(ventaRepository.save(sale), detalleVentaRepository.findDtoBySaleId(saleId));
+    }
 
+    /**
+     * Bloquea la fila de la venta para la transacción en curso. El total se ajusta
+     * sumando el delta de las líneas modificadas, así que dos ediciones simultáneas
+     * del mismo ticket deben aplicarse una después de la otra.
+     */
+    private Sale cargarVentaPendiente(Long saleId, String mensajeNoPendiente) {
+        Sale sale = ventaRepository.findByIdForUpdate(saleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada"));
         if (sale.getStatus() != StatusSale.PENDIENTE) {
-            throw new IllegalStateException("Solo se pueden modificar ventas pendientes");
+            throw new IllegalStateException(mensajeNoPendiente);
+        }
+        return sale;
+    }
+
+    /**
+     * Aplica las operaciones en orden sobre las líneas de los productos afectados,
+     * que se cargan en una sola consulta. Cada producto termina en una única fila:
+     * lo que se agrega se suma a su línea existente y las filas repetidas de tickets
+     * anteriores se consolidan en la primera. El total se ajusta por el delta.
+     */
+    private void aplicarOperaciones(Sale sale, List<LineaOperacionDTO> operaciones) {
+        Set<Long> productoIds = operaciones.stream()
+                .map(LineaOperacionDTO::productoId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, SaleDetail> lineas = new HashMap<>();
+        Map<Long, BigDecimal> subtotalesAnteriores = new HashMap<>();
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        List<SaleDetail> eliminadas = new ArrayList<>();
+        for (SaleDetail detalle : detalleVentaRepository.findBySaleIdAndProductIdInOrderByIdAsc(sale.getId(), productoIds)) {
+            Long productoId = detalle.getProduct().getId();
+            if (lineas.putIfAbsent(productoId, detalle) != null) {
+                eliminadas.add(detalle);
+            }
+            subtotalesAnteriores.merge(productoId, detalle.getSubtotal(), BigDecimal::add);
+            cantidades.merge(productoId, detalle.getCantidad(), Integer::sum);
         }
 
-        sale.setDiscount(discount != null ? discount : BigDecimal.ZERO);
-        sale.setSaleDetail(saleDetail);
+        for (LineaOperacionDTO operacion : operaciones) {
+            Long productoId = operacion.productoId();
+            Integer actual = cantidades.get(productoId);
+            if (actual == null && operacion.tipo() == TipoOperacionLinea.ELIMINAR) {
+                throw new ResourceNotFoundException("Producto " + productoId + " no encontrado en la venta");
+            }
+            int base = actual != null ? actual : 0;
+            int nueva = switch (operacion.tipo()) {
+                case SET -> cantidadDe(operacion);
+                case INCREMENTAR -> base + cantidadDe(operacion);
+                case ELIMINAR -> 0;
+            };
+            if (nueva < 0) {
+                throw new IllegalArgumentException("La cantidad del producto " + productoId + " no puede quedar negativa");
+            }
+            cantidades.put(productoId, nueva);
+        }
 
-        BigDecimal totalParcial = calcularTotal(sale.getDetails());
-        BigDecimal totalConDescuento = totalParcial.subtract(sale.getDiscount());
-        sale.setTotal(totalConDescuento);
+        List<Long> sinLinea = cantidades.entrySet().stream()
+                .filter(e -> e.getValue() > 0 && !lineas.containsKey(e.getKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<Long, Product> productos = sinLinea.isEmpty() ? Map.of() : resolverProductos(sinLinea);
+
+        BigDecimal delta = BigDecimal.ZERO;
+        List<SaleDetail> nuevas = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            Long productoId = entrada.getKey();
+            int cantidad = entrada.getValue();
+            SaleDetail linea = lineas.get(productoId);
+            BigDecimal anterior = subtotalesAnteriores.getOrDefault(productoId, BigDecimal.ZERO);
+
+            if (cantidad == 0) {
+                if (linea != null) {
+                    eliminadas.add(linea);
+                }
+                delta = delta.subtract(anterior);
+            } else if (linea == null) {
+                SaleDetail nueva = crearDetalleVenta(productos.get(productoId), cantidad, sale);
+                nuevas.add(nueva);
+                delta = delta.add(nueva.getSubtotal());
+            } else {
+                linea.setCantidad(cantidad);
+                linea.setSubtotal(linea.getPrecioUnitario().multiply(BigDecimal.valueOf(cantidad)));
+                delta = delta.add(linea.getSubtotal().subtract(anterior));
+            }
+        }
 
-        sale = ventaRepository.save(sale);
-        return convertToDTO(sale);
+        detalleVentaRepository.deleteAll(eliminadas);
+        detalleVentaRepository.saveAll(nuevas);
+        sale.setTotal(sale.getTotal().add(delta));
+    }
+
+    private static int cantidadDe(LineaOperacionDTO operacion) {
+        if (operacion.cantidad() == null) {
+            throw new IllegalArgumentException("La operación " + operacion.tipo() + " del producto "
+                    + operacion.productoId() + " requiere una cantidad");
+        }
+        return operacion.cantidad();
+    }
+
+    // El evento se escribe en el outbox dentro de la misma transacción que el cambio
+    private SaleDTO registrarEvento(SaleEventType tipo, SaleDTO venta) {
+        outboxService.registrar(tipo, venta);
+        return venta;
     }
 
-    private void actualizarStock(SaleDetail detalle) {
-        Product product = detalle.getProduct();
-        int nuevoStock = product.getStock() - detalle.getCantidad();
-        if (nuevoStock < 0) {
-            throw new IllegalStateException("Stock insuficiente para el producto: " + product.getName());
+    /**
+     * El usuario autenticado como referencia JPA, sin SELECT: el id viene en el
+     * principal armado con los claims del token. Solo si el principal no lo trae
+     * se busca por nombre de usuario.
+     */
+    private User usuarioActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth.getPrincipal() instanceof AuthenticatedUser principal && principal.id() != null) {
+            return usuarioRepository.getReferenceById(principal.id());
         }
-        product.setStock(nuevoStock);
-        productoRepository.save(product);
+        return usuarioRepository.findUsername(auth.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
     }
 
-    private SaleDetail crearDetalleVenta(SaleDetailDTO detalleDTO, Sale venta) {
-        Product product = productoRepository.findById(detalleDTO.productoId())
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
+    private Long usuarioActualId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth.getPrincipal() instanceof AuthenticatedUser principal && principal.id() != null) {
+            return principal.id();
+        }
+        return usuarioActual().getId();
+    }
+
+    /**
+     * Reclama la mesa con un compare-and-set LIBRE -> OCUPADA. Si otro mesero la
+     * ocupó primero no se actualiza ninguna fila y la venta falla con 409.
+     */
+    private void ocuparMesa(Table table) {
+        if (mesaRepository.cambiarEstadoSi(table.getId(), StatusTable.LIBRE, StatusTable.OCUPADA) == 0) {
+            throw new ConflictException("La mesa " + table.getNumero() + " no está disponible");
+        }
+    }
+
+    /**
+     * Carga en una sola consulta todos los productos de una solicitud. Los ids
+     * inexistentes o repetidos se reportan juntos en un único error.
+     */
+    private Map<Long, Product> resolverProductos(List<Long> productoIds) {
+        Set<Long> unicos = new LinkedHashSet<>();
+        Set<Long> repetidos = new LinkedHashSet<>();
+        for (Long id : productoIds) {
+            if (id == null) {
+                throw new IllegalArgumentException("Todas las líneas deben indicar un producto");
+            }
+            if (!unicos.add(id)) {
+                repetidos.add(id);
+            }
+        }
+
+        Map<Long, Product> productos = productoRepository.findAllById(unicos).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Long> faltantes = unicos.stream()
+                .filter(id -> !productos.containsKey(id))
+                .toList();
+
+        if (!faltantes.isEmpty() || !repetidos.isEmpty()) {
+            List<String> errores = new ArrayList<>();
+            if (!faltantes.isEmpty()) {
+                errores.add("productos no encontrados: " + faltantes);
+            }
+            if (!repetidos.isEmpty()) {
+                errores.add("productos repetidos en la solicitud: " + repetidos);
+            }
+            throw new IllegalArgumentException("Detalle de venta inválido, " + String.join("; ", errores));
+        }
+        return productos;
+    }
+
+    private SaleDetail crearDetalleVenta(Product product, Integer cantidad, Sale venta) {
         SaleDetail detalle = new SaleDetail();
         detalle.setSale(venta);
         detalle.setProduct(product);
-        detalle.setCantidad(detalleDTO.cantidad());
+        detalle.setCantidad(cantidad);
         detalle.setPrecioUnitario(product.getPrice());
-        detalle.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(detalleDTO.cantidad())));
+        detalle.setSubtotal(product.getPrice().multiply(BigDecimal.valueOf(cantidad)));
         return detalle;
     }
 
+    private SaleCompletedEvent toCompletedEvent(Sale venta) {
+        List<SaleCompletedEvent.Line> lineas = venta.getDetails().stream()
+                .map(d -> new SaleCompletedEvent.Line(
+                        d.getProduct().getId(),
+                        d.getProduct().getName(),
+                        d.getCantidad(),
+                        d.getSubtotal()))
+                .collect(Collectors.toList());
+        return new SaleCompletedEvent(venta.getId(), venta.getDate(), venta.getTotal(), lineas);
+    }
+
     private BigDecimal calcularTotal(List<SaleDetail> detalles) {
         return detalles.stream()
                 .map(SaleDetail::getSubtotal)
@@ -223,7 +409,10 @@ public class SaleService {
                         d.getPrecioUnitario(),
                         d.getSubtotal()))
                 .collect(Collectors.toList());
+        return convertToDTO(venta, detallesDTO);
+    }
 
+    private SaleDTO convertToDTO(Sale venta, List<SaleDetailDTO> detallesDTO) {
         return new SaleDTO(
                 venta.getId(),
                 venta.getUser().getId(),
@@ -236,26 +425,85 @@ public class SaleService {
                 detallesDTO);
     }
 
+    @Transactional(readOnly = true)
     public List<SaleDTO> obtenerVentasPorFecha(LocalDateTime inicio, LocalDateTime fin) {
-        return ventaRepository.findByDateBetween(inicio, fin)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return ensamblar(ventaRepository.findHeadersByDateBetween(inicio, fin),
+                detalleVentaRepository.findRowsBySaleDateBetween(inicio, fin));
     }
 
+    @Transactional(readOnly = true)
     public List<SaleDTO> obtenerVentasUsuario(LocalDateTime inicio, LocalDateTime fin) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User usuario = usuarioRepository.findUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-        return ventaRepository.findByUserAndDateBetween(usuario, inicio, fin)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        Long usuarioId = usuarioActualId();
+        return ensamblar(ventaRepository.findHeadersByUserIdAndDateBetween(usuarioId, inicio, fin),
+                detalleVentaRepository.findRowsByUserIdAndSaleDateBetween(usuarioId, inicio, fin));
     }
 
-    @Transactional
-    public void eliminarVentasAnterioresA(LocalDateTime fechaCorte) {
-        ventaRepository.deleteByDateBefore(fechaCorte);
+    @Transactional(readOnly = true)
+    public SalePage obtenerHistorial(LocalDateTime inicio, LocalDateTime fin, Integer limite, String cursor) {
+        SaleCursor posicion = posicionInicial(fin, cursor);
+        int tamano = tamanoPagina(limite);
+        return paginar(ventaRepository.findHeaderPage(inicio, posicion.date(), posicion.id(), Limit.of(tamano + 1)), tamano);
+    }
+
+    @Transactional(readOnly = true)
+    public SalePage obtenerHistorialUsuario(LocalDateTime inicio, LocalDateTime fin, Integer limite, String cursor) {
+        Long usuarioId = usuarioActualId();
+        SaleCursor posicion = posicionInicial(fin, cursor);
+        int tamano = tamanoPagina(limite);
+        return paginar(ventaRepository.findHeaderPageByUserId(usuarioId, inicio, posicion.date(), posicion.id(),
+                Limit.of(tamano + 1)), tamano);
+    }
+
+    // Sin cursor se empieza justo después de `fin`, así la primera página usa la misma consulta que las demás
+    private static SaleCursor posicionInicial(LocalDateTime fin, String cursor) {
+        SaleCursor tope = new SaleCursor(fin, Long.MAX_VALUE);
+        if (cursor == null || cursor.isBlank()) {
+            return tope;
+        }
+        SaleCursor recibido = SaleCursor.decode(cursor);
+        return recibido.date().isAfter(fin) ? tope : recibido;
+    }
+
+    private static int tamanoPagina(Integer limite) {
+        if (limite == null) {
+            return PAGINA_POR_DEFECTO;
+        }
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite de la página debe ser mayor a cero");
+        }
+        return Math.min(limite, PAGINA_MAXIMA);
+    }
+
+    // Se pide una fila de más para saber si existe una página siguiente
+    private SalePage paginar(List<SaleHeader> cabeceras, int tamano) {
+        boolean hayMas = cabeceras.size() > tamano;
+        List<SaleHeader> pagina = hayMas ? cabeceras.subList(0, tamano) : cabeceras;
+        if (pagina.isEmpty()) {
+            return new SalePage(List.of(), null);
+        }
+        List<Long> ids = pagina.stream().map(SaleHeader::id).toList();
+        List<SaleDTO> items = ensamblar(pagina, detalleVentaRepository.findRowsBySaleIdIn(ids));
+        SaleHeader ultima = pagina.get(pagina.size() - 1);
+        return new SalePage(items, hayMas ? new SaleCursor(ultima.date(), ultima.id()).encode() : null);
+    }
+
+    // Dos consultas por listado, sin importar cuántas ventas o líneas devuelva
+    private List<SaleDTO> ensamblar(List<SaleHeader> cabeceras, List<SaleDetailRow> filas) {
+        Map<Long, List<SaleDetailDTO>> detallesPorVenta = filas.stream()
+                .collect(Collectors.groupingBy(SaleDetailRow::saleId,
+                        Collectors.mapping(SaleDetailRow::toDTO, Collectors.toList())));
+        return cabeceras.stream()
+                .map(c -> new SaleDTO(
+                        c.id(),
+                        c.userId(),
+                        c.tableId(),
+                        c.date(),
+                        c.total(),
+                        c.status(),
+                        c.discount(),
+                        c.saleDetail(),
+                        detallesPorVenta.getOrDefault(c.id(), List.of())))
+                .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+}
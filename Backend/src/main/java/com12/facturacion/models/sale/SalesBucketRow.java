@@ -0,0 +1,13 @@
+package com12.facturacion.models.sale;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila de la serie agregada por {@code date_trunc}. El bucket se expresa en
+ * segundos desde epoch del valor local de {@code sales.date}.
+ */
+public interface SalesBucketRow {
+    Long getBucket();
+    BigDecimal getRevenue();
+    Long getUnits();
+}
@@ -0,0 +1,5 @@
+package com12.facturacion.models.sale;
+
+public enum TipoOperacionLinea {
+    SET, INCREMENTAR, ELIMINAR
+}
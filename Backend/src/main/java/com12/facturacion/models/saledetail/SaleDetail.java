@@ -6,20 +6,27 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @Entity(name = "SaleDetail")
-@Table(name = "sale_details")
+@Table(name = "sale_details", indexes = @Index(name = "idx_sale_details_sale_id", columnList = "sale_id"))
 public class SaleDetail {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Con sales particionada el script reemplaza esta FK por una compuesta (sale_id, sale_date)
+    // con el mismo nombre, así que ddl-auto la da por existente y no intenta recrearla
     @ManyToOne
-    @JoinColumn(name = "sale_id", nullable = false)
+    @JoinColumn(name = "sale_id", nullable = false, foreignKey = @ForeignKey(name = "fk_sale_details_sale"))
     private Sale sale;
 
+    // Copia de sales.date: es la columna por la que se particiona sale_details
+    @Column(name = "sale_date")
+    private LocalDateTime saleDate;
+
     @ManyToOne
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -33,4 +40,10 @@ public class SaleDetail {
     @Column(nullable = false)
     private BigDecimal subtotal;
 
+    @PrePersist
+    protected void onCreate() {
+        if (saleDate == null && sale != null) {
+            saleDate = sale.getDate();
+        }
+    }
 }
@@ -1,8 +1,45 @@
 package com12.facturacion.models.saledetail;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface SaleDetailRepository extends JpaRepository<SaleDetail,Long> {
+
+    Optional<SaleDetail> findFirstBySaleIdAndProductIdOrderByIdAsc(Long saleId, Long productId);
+
+    List<SaleDetail> findBySaleIdAndProductIdInOrderByIdAsc(Long saleId, Collection<Long> productIds);
+
+    // Las líneas de un ticket sin hidratar entidades ni unir con products
+    @Query("SELECT new com12.facturacion.models.saledetail.SaleDetailDTO(d.product.id, d.cantidad, d.precioUnitario, d.subtotal) " +
+            "FROM SaleDetail d WHERE d.sale.id = :saleId ORDER BY d.id")
+    List<SaleDetailDTO> findDtoBySaleId(@Param("saleId") Long saleId);
+
+    @Query("SELECT new com12.facturacion.models.saledetail.SaleDetailRow(d.sale.id, d.product.id, d.cantidad, d.precioUnitario, d.subtotal) " +
+            "FROM SaleDetail d WHERE d.sale.id IN :saleIds ORDER BY d.sale.id, d.id")
+    List<SaleDetailRow> findRowsBySaleIdIn(@Param("saleIds") Collection<Long> saleIds);
+
+    @Modifying
+    @Query("DELETE FROM SaleDetail d WHERE d.sale.id IN :saleIds")
+    int deleteBySaleIdIn(@Param("saleIds") Collection<Long> saleIds);
+
+    // Mismo filtro que la consulta de cabeceras, para no pasar una lista IN con miles de ids
+    @Query("SELECT new com12.facturacion.models.saledetail.SaleDetailRow(d.sale.id, d.product.id, d.cantidad, d.precioUnitario, d.subtotal) " +
+            "FROM SaleDetail d WHERE d.sale.date BETWEEN :inicio AND :fin ORDER BY d.sale.id, d.id")
+    List<SaleDetailRow> findRowsBySaleDateBetween(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT new com12.facturacion.models.saledetail.SaleDetailRow(d.sale.id, d.product.id, d.cantidad, d.precioUnitario, d.subtotal) " +
+            "FROM SaleDetail d WHERE d.sale.user.id = :userId AND d.sale.date BETWEEN :inicio AND :fin " +
+            "ORDER BY d.sale.id, d.id")
+    List<SaleDetailRow> findRowsByUserIdAndSaleDateBetween(@Param("userId") Long userId,
+                                                          @Param("inicio") LocalDateTime inicio,
+                                                          @Param("fin") LocalDateTime fin);
 }
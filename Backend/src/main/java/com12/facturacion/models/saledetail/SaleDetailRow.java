@@ -0,0 +1,15 @@
+package com12.facturacion.models.saledetail;
+
+import java.math.BigDecimal;
+
+public record SaleDetailRow(
+        Long saleId,
+        Long productoId,
+        Integer cantidad,
+        BigDecimal precioUnitario,
+        BigDecimal subtotal
+) {
+    public SaleDetailDTO toDTO() {
+        return new SaleDetailDTO(productoId, cantidad, precioUnitario, subtotal);
+    }
+}
@@ -20,6 +20,10 @@ public class Table {
     @Enumerated(EnumType.STRING)
     private StatusTable estado;
 
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @OneToMany(mappedBy = "table")
     private List<Sale> sales;
 }
@@ -1,6 +1,9 @@
 package com12.facturacion.models.table;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +13,15 @@ public interface TableRepository extends JpaRepository<Table, Long> {
     List<Table> findByEstado(StatusTable estado);
     boolean existsByNumero(String numero);
 
+    /**
+     * Cambia el estado solo si la mesa sigue en {@code esperado}. Devuelve 0 si
+     * otra transacción la cambió antes.
+     */
+    @Modifying
+    @Query("UPDATE Table t SET t.estado = :nuevo, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.estado = :esperado")
+    int cambiarEstadoSi(@Param("id") Long id,
+                        @Param("esperado") StatusTable esperado,
+                        @Param("nuevo") StatusTable nuevo);
+
 }
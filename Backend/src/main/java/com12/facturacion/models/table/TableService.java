@@ -1,5 +1,6 @@
 package com12.facturacion.models.table;
 
+import com12.facturacion.infra.erros.ConflictException;
 import com12.facturacion.infra.erros.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,8 +54,13 @@ public class TableService {
         Table mesa = tableRepository.findById(mesaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Mesa no encontrada"));
 
-        mesa.setEstado(estadonuevo);
-        return convertToDTO(tableRepository.save(mesa));
+        if (mesa.getEstado() == estadonuevo) {
+            return convertToDTO(mesa);
+        }
+        if (tableRepository.cambiarEstadoSi(mesaId, mesa.getEstado(), estadonuevo) == 0) {
+            throw new ConflictException("La mesa " + mesa.getNumero() + " cambió de estado mientras se actualizaba");
+        }
+        return new TableDTO(mesa.getId(), mesa.getNumero(), estadonuevo);
     }
 
     @Transactional
@@ -1,5 +1,7 @@
 package com12.facturacion.models.user;
 
+import com12.facturacion.infra.security.AutenticationService;
+import com12.facturacion.infra.security.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -10,11 +12,17 @@ import java.util.List;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AutenticationService autenticationService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       AutenticationService autenticationService,
+                       TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.autenticationService = autenticationService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     public UserDTO registerUser (RegisterUserDTO registerUserDTO){
@@ -38,6 +46,9 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setRole(rol);
         userRepository.save(user);
+        autenticationService.evict(user.getUsername());
+        // El rol viaja dentro del token: los emitidos antes del cambio dejan de valer
+        tokenRevocationService.revocarSesiones(userId);
     }
 
     public List<UserDTO> getAllUsers(){
@@ -50,5 +61,14 @@ public class UserService {
     public void deleteUser(Long userId){
         User user = userRepository.findById(userId).orElseThrow(()-> new RuntimeException("User not found"));
         userRepository.delete(user);
+        autenticationService.evict(user.getUsername());
+        tokenRevocationService.revocarSesiones(userId);
+    }
+
+    public void revocarSesiones(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        tokenRevocationService.revocarSesiones(userId);
     }
 }
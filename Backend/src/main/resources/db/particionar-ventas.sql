@@ -0,0 +1,82 @@
+-- Convierte sales y sale_details en tablas particionadas por mes (PostgreSQL 12 o superior).
+-- Ejecutar una sola vez, con la aplicación detenida y después de haber arrancado al menos
+-- una vez la versión que agrega sale_details.sale_date. Al volver a arrancar,
+-- SalePartitionService detecta el particionado y crea por su cuenta las particiones futuras.
+--
+-- Postgres exige que la clave primaria incluya la columna de partición, por eso las
+-- claves pasan a ser (id, date) y (id, sale_date), y sale_details referencia a sales
+-- con la pareja (sale_id, sale_date). JPA sigue usando solo id. La FK compuesta lleva el
+-- mismo nombre que declara SaleDetail (fk_sale_details_sale) para que Hibernate no la recree.
+
+BEGIN;
+
+LOCK TABLE sales, sale_details IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE sale_details ADD COLUMN IF NOT EXISTS sale_date timestamp(6);
+UPDATE sale_details d SET sale_date = s.date FROM sales s WHERE s.id = d.sale_id AND d.sale_date IS NULL;
+
+-- La FK simple sale_id -> sales(id) que crea Hibernate no sirve con la clave (id, date);
+-- se quita con el nombre que tenga y al final se crea la compuesta
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN SELECT conname FROM pg_constraint
+              WHERE conrelid = 'sale_details'::regclass AND confrelid = 'sales'::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE sale_details DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+CREATE TABLE sales_p (LIKE sales INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (date);
+ALTER TABLE sales_p ADD CONSTRAINT sales_p_pkey PRIMARY KEY (id, date);
+
+CREATE TABLE sale_details_p (LIKE sale_details INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (sale_date);
+ALTER TABLE sale_details_p ALTER COLUMN sale_date SET NOT NULL;
+ALTER TABLE sale_details_p ADD CONSTRAINT sale_details_p_pkey PRIMARY KEY (id, sale_date);
+
+-- Una partición por mes desde la venta más antigua hasta tres meses por delante
+DO $$
+DECLARE
+    mes date := date_trunc('month', COALESCE((SELECT min(date) FROM sales), now()))::date;
+    ultimo date := (date_trunc('month', now()) + interval '3 months')::date;
+BEGIN
+    WHILE mes <= ultimo LOOP
+        EXECUTE format('CREATE TABLE sales_%s PARTITION OF sales_p FOR VALUES FROM (%L) TO (%L)',
+                       to_char(mes, 'YYYY_MM'), mes, (mes + interval '1 month')::date);
+        EXECUTE format('CREATE TABLE sale_details_%s PARTITION OF sale_details_p FOR VALUES FROM (%L) TO (%L)',
+                       to_char(mes, 'YYYY_MM'), mes, (mes + interval '1 month')::date);
+        mes := (mes + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO sales_p SELECT * FROM sales;
+INSERT INTO sale_details_p SELECT * FROM sale_details;
+
+DROP TABLE sale_details;
+DROP TABLE sales;
+
+ALTER TABLE sales_p RENAME TO sales;
+ALTER TABLE sales RENAME CONSTRAINT sales_p_pkey TO sales_pkey;
+ALTER TABLE sale_details_p RENAME TO sale_details;
+ALTER TABLE sale_details RENAME CONSTRAINT sale_details_p_pkey TO sale_details_pkey;
+
+-- Las columnas identity no se copian con LIKE: los ids siguen saliendo de una secuencia
+CREATE SEQUENCE sales_id_seq OWNED BY sales.id;
+SELECT setval('sales_id_seq', COALESCE((SELECT max(id) FROM sales), 0) + 1, false);
+ALTER TABLE sales ALTER COLUMN id SET DEFAULT nextval('sales_id_seq');
+
+CREATE SEQUENCE sale_details_id_seq OWNED BY sale_details.id;
+SELECT setval('sale_details_id_seq', COALESCE((SELECT max(id) FROM sale_details), 0) + 1, false);
+ALTER TABLE sale_details ALTER COLUMN id SET DEFAULT nextval('sale_details_id_seq');
+
+ALTER TABLE sales ADD CONSTRAINT fk_sales_usuario FOREIGN KEY (usuario_id) REFERENCES users (id);
+ALTER TABLE sales ADD CONSTRAINT fk_sales_table FOREIGN KEY (table_id) REFERENCES tables (id);
+ALTER TABLE sale_details ADD CONSTRAINT fk_sale_details_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE sale_details ADD CONSTRAINT fk_sale_details_sale
+    FOREIGN KEY (sale_id, sale_date) REFERENCES sales (id, date);
+
+CREATE INDEX idx_sales_date_id ON sales (date, id);
+CREATE INDEX idx_sales_usuario_date_id ON sales (usuario_id, date, id);
+CREATE INDEX idx_sale_details_sale_id ON sale_details (sale_id);
+
+COMMIT;
@@ -0,0 +1,130 @@
+package com12.facturacion.models.rollup;
+
+import com12.facturacion.models.product.Product;
+import com12.facturacion.models.product.ProductCategory;
+import com12.facturacion.models.product.ProductRepository;
+import com12.facturacion.models.sale.Sale;
+import com12.facturacion.models.sale.SaleRepository;
+import com12.facturacion.models.sale.StatusSale;
+import com12.facturacion.models.saledetail.SaleDetail;
+import com12.facturacion.models.table.StatusTable;
+import com12.facturacion.models.table.Table;
+import com12.facturacion.models.table.TableRepository;
+import com12.facturacion.models.user.Rol;
+import com12.facturacion.models.user.User;
+import com12.facturacion.models.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// reconstruir() vacía y recalcula sales_daily_rollup entera y bloquea la tabla mientras dura la
+// transacción, así que corre en la base aislada de TEST_DATASOURCE_URL; todo se revierte al terminar
+@SpringBootTest
+@TestPropertySource("classpath:test-database.properties")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+@Transactional
+class SalesRollupServiceTest {
+
+    // Un día sin más ventas para no mezclarse con datos existentes
+    private static final LocalDate DIA = LocalDate.of(2001, 1, 1);
+
+    @Autowired
+    private SalesRollupService rollupService;
+    @Autowired
+    private SaleRepository saleRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TableRepository tableRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rebuildKeepsTheIncrementalDiscountSplit() {
+        Sale sale = new Sale();
+        sale.setUser(usuario());
+        sale.setTable(mesa());
+        sale.setDate(DIA.atTime(13, 0));
+        sale.setStatus(StatusSale.COMPLETADA);
+        sale.setDiscount(new BigDecimal("100.00"));
+        agregarLinea(sale, producto("Sopa"), 1, "1000.00");
+        agregarLinea(sale, producto("Bandeja"), 1, "1000.00");
+        agregarLinea(sale, producto("Jugo"), 2, "1000.00");
+        sale.setTotal(new BigDecimal("2900.00"));
+        saleRepository.saveAndFlush(sale);
+
+        rollupService.registrarVenta(sale);
+        Map<Long, BigDecimal> incremental = descuentosDelDia();
+
+        rollupService.reconstruir();
+        Map<Long, BigDecimal> reconstruido = descuentosDelDia();
+
+        // 100 / 3 no es exacto: dos líneas llevan 33.33 y la última 33.34
+        assertThat(incremental).hasSize(3);
+        assertThat(reconstruido).isEqualTo(incremental);
+        assertThat(reconstruido.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo("100.00");
+    }
+
+    private Map<Long, BigDecimal> descuentosDelDia() {
+        entityManager.flush();
+        Map<Long, BigDecimal> descuentos = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, discount FROM sales_daily_rollup WHERE sale_day = ?",
+                rs -> {
+                    descuentos.put(rs.getLong("product_id"), rs.getBigDecimal("discount").setScale(2));
+                },
+                DIA);
+        return descuentos;
+    }
+
+    private void agregarLinea(Sale sale, Product product, int cantidad, String subtotal) {
+        SaleDetail detalle = new SaleDetail();
+        detalle.setSale(sale);
+        detalle.setProduct(product);
+        detalle.setCantidad(cantidad);
+        detalle.setSubtotal(new BigDecimal(subtotal));
+        detalle.setPrecioUnitario(new BigDecimal(subtotal).divide(BigDecimal.valueOf(cantidad)));
+        sale.getDetails().add(detalle);
+    }
+
+    private Product producto(String nombre) {
+        Product product = new Product();
+        product.setName(nombre);
+        product.setPrice(BigDecimal.ONE);
+        product.setImageUrl("-");
+        product.setStock(10);
+        product.setCategory(ProductCategory.CALIENTE);
+        return productRepository.save(product);
+    }
+
+    private Table mesa() {
+        Table table = new Table();
+        table.setNumero("rollup-test");
+        table.setEstado(StatusTable.LIBRE);
+        return tableRepository.save(table);
+    }
+
+    private User usuario() {
+        User user = new User();
+        user.setUsername("rollup-test");
+        user.setPassword("-");
+        user.setRole(Rol.CAJERO);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,136 @@
+package com12.facturacion.models.sale;
+
+import com12.facturacion.infra.erros.ConflictException;
+import com12.facturacion.infra.security.AuthenticatedUser;
+import com12.facturacion.models.product.Product;
+import com12.facturacion.models.product.ProductCategory;
+import com12.facturacion.models.product.ProductRepository;
+import com12.facturacion.models.saledetail.SaleDetailDTO;
+import com12.facturacion.models.table.StatusTable;
+import com12.facturacion.models.table.Table;
+import com12.facturacion.models.table.TableRepository;
+import com12.facturacion.models.user.Rol;
+import com12.facturacion.models.user.User;
+import com12.facturacion.models.user.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Corre contra una base de PostgreSQL real y aislada (TEST_DATASOURCE_URL) para
+// ejercitar el UPDATE ... WHERE estado = :esperado real y no una simulación
+@SpringBootTest
+@TestPropertySource("classpath:test-database.properties")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class SaleServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private TableRepository tableRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Table table;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("mesero-concurrencia-" + System.nanoTime());
+        user.setPassword("-");
+        user.setRole(Rol.MESERO);
+        user = userRepository.save(user);
+
+        table = new Table();
+        table.setNumero("concurrencia");
+        table.setEstado(StatusTable.LIBRE);
+        table = tableRepository.save(table);
+
+        product = new Product();
+        product.setName("Cerveza");
+        product.setPrice(new BigDecimal("5000"));
+        product.setImageUrl("-");
+        product.setStock(100);
+        product.setCategory(ProductCategory.BEBIDAS);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        String ventasDeLaMesa = "SELECT id FROM sales WHERE table_id = ?";
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE sale_id IN (" + ventasDeLaMesa + ")", table.getId());
+        jdbcTemplate.update("DELETE FROM sale_details WHERE sale_id IN (" + ventasDeLaMesa + ")", table.getId());
+        jdbcTemplate.update("DELETE FROM sales WHERE table_id = ?", table.getId());
+        tableRepository.deleteById(table.getId());
+        productRepository.deleteById(product.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void onlyOneWaiterClaimsAFreeTable() throws Exception {
+        SaleRequest request = new SaleRequest(table.getId(),
+                List.of(new SaleDetailDTO(product.getId(), 2, null, null)), BigDecimal.ZERO, null);
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getUsername(), Rol.MESERO.name());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SaleDTO>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Callable<SaleDTO> task = () -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+                start.await();
+                return saleService.crearVenta(request);
+            };
+            results.add(executor.submit(task));
+        }
+        start.countDown();
+
+        int claimed = 0;
+        int conflicts = 0;
+        for (Future<SaleDTO> result : results) {
+            try {
+                result.get(30, TimeUnit.SECONDS);
+                claimed++;
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause()).isInstanceOf(ConflictException.class);
+                conflicts++;
+            }
+        }
+        executor.shutdownNow();
+
+        assertThat(claimed).isEqualTo(1);
+        assertThat(conflicts).isEqualTo(THREADS - 1);
+        assertThat(tableRepository.findById(table.getId()).orElseThrow().getEstado()).isEqualTo(StatusTable.OCUPADA);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sales WHERE table_id = ?",
+                Long.class, table.getId())).isEqualTo(1);
+    }
+}
@@ -22,6 +22,7 @@ import ExpandMore from "@mui/icons-material/ExpandMore";
 import { Link, useNavigate } from "react-router-dom";
 import {  jwtDecode} from "jwt-decode";
 import logo from "../assets/images/logo.jpeg";
+import authService from "../services/auth";
 
 const Navbar = () => {
   const theme = useTheme();
@@ -49,7 +50,7 @@ const Navbar = () => {
   };
 
   const handleLogout = () => {
-    localStorage.removeItem("jwtToken");
+    authService.logout();
     navigate("/login");
   };
 
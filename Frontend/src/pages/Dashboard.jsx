@@ -31,8 +31,9 @@ const Dashboard = () => {
 
     fetchStats();
 
-    const handleDashboardUpdate = (newStats) => {
-      setStats(newStats);
+    // El servidor solo envía los campos que cambiaron desde el último mensaje
+    const handleDashboardUpdate = (changes) => {
+      setStats((prev) => ({ ...prev, ...changes }));
     };
 
     const handleNotification = (message) => {
@@ -23,6 +23,7 @@ const ProductForm = () => {
     name: "",
     price: "",
     stock: "",
+    stockMinimo: "",
     category: "",
     description: "",
     image: null,
@@ -86,8 +87,10 @@ const handleCreateProduct = async () => {
 
     const precio = parseFloat(newProduct.price);
     const stock = parseInt(newProduct.stock);
+    // Vacío: el backend usa el umbral por defecto
+    const stockMinimo = newProduct.stockMinimo === "" ? null : parseInt(newProduct.stockMinimo);
 
-    if (isNaN(precio) || isNaN(stock)) {
+    if (isNaN(precio) || isNaN(stock) || Number.isNaN(stockMinimo)) {
       setError("Precio y stock deben ser números válidos.");
       return;
     }
@@ -100,6 +103,7 @@ const handleCreateProduct = async () => {
           nombre: newProduct.name,
           precio,
           stock,
+          stockMinimo,
           descripcion: newProduct.description,
           tipo: newProduct.category
         })],
@@ -119,6 +123,7 @@ const handleCreateProduct = async () => {
       name: "",
       price: "",
       stock: "",
+      stockMinimo: "",
       category: "",
       description: "",
       image: null,
@@ -173,6 +178,14 @@ const handleCreateProduct = async () => {
               setNewProduct({ ...newProduct, stock: e.target.value })
             }
           />
+          <TextField
+            label="Stock mínimo (opcional)"
+            fullWidth
+            value={newProduct.stockMinimo}
+            onChange={(e) =>
+              setNewProduct({ ...newProduct, stockMinimo: e.target.value })
+            }
+          />
           <FormControl fullWidth>
             <InputLabel>Categoría</InputLabel>
             <Select
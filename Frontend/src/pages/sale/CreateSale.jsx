@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import api from "../../api/axiosConfig";
 import {
   Container,
@@ -26,6 +26,8 @@ import RemoveIcon from "@mui/icons-material/Remove";
 
 const CreateSale = () => {
   const [tables, setTables] = useState([]);
+  // Se conserva entre reintentos para que el backend no duplique la venta.
+  const idempotencyKey = useRef(crypto.randomUUID());
   const [products, setProducts] = useState([]);
   const [filteredProducts, setFilteredProducts] = useState([]);
   const [newSale, setNewSale] = useState({ tableId: "", detail: [], discount: 0 });
@@ -104,8 +106,9 @@ const CreateSale = () => {
     try {
       const token = localStorage.getItem("jwtToken");
       await api.post("/ventas", formattedSale, {
-        headers: { Authorization: `Bearer ${token}` },
+        headers: { Authorization: `Bearer ${token}`, "Idempotency-Key": idempotencyKey.current },
       });
+      idempotencyKey.current = crypto.randomUUID();
       setNewSale({ tableId: "", detail: [], discount: 0 });
       setSaleDetailOption("Pago en efectivo");
       setSaleDetailCustom("");
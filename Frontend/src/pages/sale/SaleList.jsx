@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import api from "../../api/axiosConfig";
 import {
   Container,
@@ -44,6 +44,8 @@ const SaleList = () => {
   const [openAddProductsDialog, setOpenAddProductsDialog] = useState(false);
   const [selectedSaleForAdd, setSelectedSaleForAdd] = useState(null);
   const [additionalProducts, setAdditionalProducts] = useState([]);
+  // Una clave por diálogo abierto: los reintentos no duplican las líneas agregadas.
+  const addProductsKey = useRef(null);
   const [openCompleteDialog, setOpenCompleteDialog] = useState(false);
   const [saleToComplete, setSaleToComplete] = useState(null);
   const [selectedCategory, setSelectedCategory] = useState("TODOS");
@@ -125,6 +127,7 @@ const SaleList = () => {
     if (sale.status !== "PENDIENTE") return;
     setSelectedSaleForAdd(sale);
     setAdditionalProducts([]);
+    addProductsKey.current = crypto.randomUUID();
     setOpenAddProductsDialog(true);
   };
 
@@ -155,7 +158,7 @@ const SaleList = () => {
         await api.put(
           `/ventas/${selectedSaleForAdd.id}/agregarProductos`,
           { detail: additionalProducts },
-          { headers: { Authorization: `Bearer ${token}` } }
+          { headers: { Authorization: `Bearer ${token}`, "Idempotency-Key": addProductsKey.current } }
         );
         setSuccessMessage("Productos agregados exitosamente.");
         setError("");
@@ -24,8 +24,16 @@ const authHeader = () => {
     ? { Authorization: `Bearer ${token}`, 'Content-Type': 'application/json' }
     : {};
 };
-const logout = () => {
+const logout = async () => {
+  const headers = authHeader();
   localStorage.removeItem('jwtToken');
+  if (!headers.Authorization) return;
+  try {
+    // Revoca el token en el servidor para que no siga valiendo si alguien lo copió
+    await axios.post(`${API_URL}/logout`, null, { headers });
+  } catch (error) {
+    console.error('Error al cerrar sesión:', error.response?.data?.message || error.message);
+  }
 };
 
 export default {